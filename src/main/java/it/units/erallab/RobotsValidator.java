@@ -6,6 +6,7 @@ import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
 import it.units.erallab.hmsrobots.util.RobotUtils;
 import it.units.erallab.hmsrobots.util.SerializationUtils;
 import it.units.erallab.evolution.locomotion.NamedFunctions;
+import it.units.erallab.evolution.utils.SolutionArchive;
 import it.units.malelab.jgea.Worker;
 import it.units.malelab.jgea.core.listener.NamedFunction;
 import org.apache.commons.csv.CSVFormat;
@@ -15,9 +16,7 @@ import org.apache.commons.csv.CSVRecord;
 import org.dyn4j.dynamics.Settings;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -71,6 +70,8 @@ public class RobotsValidator extends Worker {
     // params
     String inputFileName = a("inputFile", "last.txt");
     String serializedRobotColumnName = a("serializedRobotColumn", "best→solution→serialized");
+    //if given, the column holds references to the solutions in this archive, rather than their serializations
+    String solutionArchiveFileName = a("solutionArchiveFile", null);
     String outputFileName = a("outputFile", "validation-redone.txt");
     double episodeTime = d(a("episodeTime", "10"));
     double episodeTransientTime = d(a("episodeTransientTime", "1"));
@@ -93,6 +94,25 @@ public class RobotsValidator extends Worker {
     // parse old file and print headers to new file
     List<String> oldHeaders = readRecordsFromFile(inputFileName);
     oldHeaders = oldHeaders.stream().filter(headersToKeep::contains).collect(Collectors.toList());
+    // read referenced solutions from the archive
+    Map<String, String> archivedSerializations = null;
+    if (solutionArchiveFileName != null) {
+      Set<String> references = records.stream()
+          .map(r -> r.get(serializedRobotColumnName))
+          .collect(Collectors.toSet());
+      Map<String, String> serializations = new HashMap<>();
+      try {
+        SolutionArchive.read(new File(solutionArchiveFileName), (hash, serialization) -> {
+          if (references.contains(hash)) {
+            serializations.put(hash, serialization);
+          }
+        });
+      } catch (IOException e) {
+        L.severe(String.format("Cannot read solution archive: %s", e));
+        System.exit(-1);
+      }
+      archivedSerializations = serializations;
+    }
     List<NamedFunction<? super Outcome, ?>> basicOutcomeFunctions = NamedFunctions.basicOutcomeFunctions();
     List<NamedFunction<? super Outcome, ?>> detailedOutcomeFunctions = NamedFunctions.detailedOutcomeFunctions(spectrumMinFreq, spectrumMaxFreq, spectrumSize);
     List<String> basicOutcomeFunctionsNames = basicOutcomeFunctions.stream().map(NamedFunction::getName).toList();
@@ -110,7 +130,17 @@ public class RobotsValidator extends Worker {
     int validationsCounter = 0;
     for (CSVRecord record : records) {
       // read robot and record
-      Robot robot = SerializationUtils.deserialize(record.get(serializedRobotColumnName), Robot.class, mode);
+      Robot robot;
+      if (archivedSerializations != null) {
+        String serialization = archivedSerializations.get(record.get(serializedRobotColumnName));
+        if (serialization == null) {
+          L.warning(String.format("Cannot find solution %s in archive", record.get(serializedRobotColumnName)));
+          continue;
+        }
+        robot = SerializationUtils.deserialize(serialization, Robot.class, SerializationUtils.Mode.JSON);
+      } else {
+        robot = SerializationUtils.deserialize(record.get(serializedRobotColumnName), Robot.class, mode);
+      }
       robot.reset();
       List<String> oldRecord = oldHeaders.stream().map(record::get).toList();
 
@@ -125,9 +155,10 @@ public class RobotsValidator extends Worker {
                 List<Object> cells = new ArrayList<>(oldRecord);
                 cells.addAll(List.of(validationTransformationName, seed, terrainName));
                 Locomotion locomotion = new Locomotion(episodeTime, Locomotion.createTerrain(terrainName), new Settings());
-                Outcome outcome = locomotion.apply(SerializationUtils.clone(transformedRobot));
-                cells.addAll(basicOutcomeFunctions.stream().map(f -> f.apply(outcome.subOutcome(episodeTransientTime, episodeTime))).toList());
-                cells.addAll(detailedOutcomeFunctions.stream().map(f -> f.apply(outcome.subOutcome(episodeTransientTime, episodeTime))).toList());
+                Outcome outcome = locomotion.apply(SerializationUtils.clone(transformedRobot))
+                    .subOutcome(episodeTransientTime, episodeTime);
+                cells.addAll(basicOutcomeFunctions.stream().map(f -> f.apply(outcome)).toList());
+                cells.addAll(detailedOutcomeFunctions.stream().map(f -> f.apply(outcome)).toList());
                 return cells;
               }).toList();
           rows.forEach(row -> {
@@ -19,6 +19,7 @@ public class BrainCentralized implements NamedProvider<PrototypedFunctionBuilder
   @Override
   public PrototypedFunctionBuilder<TimedRealFunction, Robot> build(Map<String, String> params) {
     double step = Double.parseDouble(params.getOrDefault("s", "0"));
+    boolean skipSensing = Boolean.parseBoolean(params.getOrDefault("skipSensing", "false"));
     return new PrototypedFunctionBuilder<>() {
       @Override
       public Function<TimedRealFunction, Robot> buildFor(Robot robot) {
@@ -39,7 +40,7 @@ public class BrainCentralized implements NamedProvider<PrototypedFunctionBuilder
             ));
           }
           return new Robot(
-              new StepController(new CentralizedSensing(body, function), step),
+              new StepController(new CentralizedSensing(body, function), step, skipSensing),
               SerializationUtils.clone(body)
           );
         };
@@ -29,6 +29,7 @@ import it.units.erallab.hmsrobots.viewers.GridFileWriter;
 import it.units.erallab.hmsrobots.viewers.NamedValue;
 import it.units.erallab.hmsrobots.viewers.VideoUtils;
 import it.units.erallab.evolution.locomotion.Starter.ValidationOutcome;
+import it.units.erallab.evolution.utils.SolutionArchive;
 import it.units.malelab.jgea.core.listener.Accumulator;
 import it.units.malelab.jgea.core.listener.AccumulatorFactory;
 import it.units.malelab.jgea.core.listener.NamedFunction;
@@ -41,6 +42,10 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -303,6 +308,16 @@ public class NamedFunctions {
         solution()));
   }
 
+  //solutions are written once in the archive and referenced by their hash
+  public static List<NamedFunction<? super Individual<?, Robot, Outcome>, ?>> serializationFunction(
+      SolutionArchive archive
+  ) {
+    if (archive == null) {
+      return List.of();
+    }
+    return List.of(f("serialized.reference", archive::reference).of(solution()));
+  }
+
   public static NamedFunction<Pair<POSetPopulationState<?, Robot, Outcome>, Individual<?, Robot, Outcome>>,
       POSetPopulationState<?, Robot, Outcome>> stateExtractor() {
     return f(
@@ -318,14 +333,32 @@ public class NamedFunctions {
       double episodeTime,
       double transientTime
   ) {
+    return validation(terrainNames, transformationNames, seeds, episodeTime, transientTime, null);
+  }
+
+  public static Function<? super Individual<?, Robot, Outcome>, Collection<ValidationOutcome>> validation(
+      List<String> terrainNames,
+      List<String> transformationNames,
+      List<Integer> seeds,
+      double episodeTime,
+      double transientTime,
+      ExecutorService executorService
+  ) {
+    //terrains not depending on the random generator are built once and shared, read-only, by all the validations
+    Map<String, double[][]> terrains = terrainNames.stream()
+        .filter(n -> !n.contains("-rnd"))
+        .distinct()
+        .collect(Collectors.toMap(n -> n, Locomotion::createTerrain));
     return i -> {
-      List<ValidationOutcome> outcomes = new ArrayList<>();
+      //each validation works on its own copy of the robot, since the simulation changes its state
+      List<Callable<ValidationOutcome>> validations = new ArrayList<>();
       for (String terrainName : terrainNames) {
         for (String transformationName : transformationNames) {
           for (int seed : seeds) {
-            outcomes.add(Starter.validate(
-                i.solution(),
+            validations.add(() -> Starter.validate(
+                SerializationUtils.clone(i.solution()),
                 terrainName,
+                terrains.get(terrainName),
                 transformationName,
                 seed,
                 episodeTime,
@@ -334,6 +367,30 @@ public class NamedFunctions {
           }
         }
       }
+      //a failed validation is propagated, rather than skipped, so that the output has one row per combination
+      List<ValidationOutcome> outcomes = new ArrayList<>();
+      if (executorService == null) {
+        for (Callable<ValidationOutcome> validation : validations) {
+          try {
+            outcomes.add(validation.call());
+          } catch (RuntimeException e) {
+            throw e;
+          } catch (Exception e) {
+            throw new IllegalStateException(String.format("Cannot validate individual due to %s", e), e);
+          }
+        }
+        return outcomes;
+      }
+      try {
+        for (Future<ValidationOutcome> future : executorService.invokeAll(validations)) {
+          outcomes.add(future.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(String.format("Cannot validate individual due to %s", e), e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(String.format("Cannot validate individual due to %s", e.getCause()), e.getCause());
+      }
       return outcomes;
     };
   }
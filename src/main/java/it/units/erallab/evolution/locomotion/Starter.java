@@ -18,6 +18,7 @@ package it.units.erallab.evolution.locomotion;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AtomicDouble;
 import it.units.erallab.evolution.builder.NamedProvider;
 import it.units.erallab.evolution.builder.PrototypedFunctionBuilder;
 import it.units.erallab.evolution.builder.function.MLP;
@@ -29,12 +30,16 @@ import it.units.erallab.evolution.builder.solver.SimpleES;
 import it.units.erallab.evolution.builder.solver.SolverBuilder;
 import it.units.erallab.evolution.builder.spikingfunction.QuantizedMSN;
 import it.units.erallab.evolution.builder.spikingfunction.QuantizedMSNWithConverters;
+import it.units.erallab.evolution.utils.SolutionArchive;
 import it.units.erallab.hmsrobots.core.controllers.Controller;
 import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
 import it.units.erallab.hmsrobots.core.objects.Robot;
 import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
 import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import it.units.erallab.hmsrobots.tasks.locomotion.StopCondition;
 import it.units.erallab.hmsrobots.util.RobotUtils;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+import it.units.erallab.hmsrobots.util.Utils;
 import it.units.malelab.jgea.Worker;
 import it.units.malelab.jgea.core.TotalOrderQualityBasedProblem;
 import it.units.malelab.jgea.core.listener.*;
@@ -48,8 +53,12 @@ import it.units.malelab.jgea.core.util.Pair;
 import org.dyn4j.dynamics.Settings;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
@@ -67,6 +76,8 @@ public class Starter extends Worker {
   public final static Settings PHYSICS_SETTINGS = new Settings();
   public static final int CACHE_SIZE = 1000;
   public static final String MAPPER_PIPE_CHAR = "<";
+  public static final String SOLUTION_ARCHIVE_SUFFIX = ".solutions.gz";
+  private static final long TERMINATION_TIMEOUT_MINUTES = 60;
 
   public Starter(String[] args) {
     super(args);
@@ -84,17 +95,110 @@ public class Starter extends Worker {
 
   public static Function<Robot, Outcome> buildLocomotionTask(
       String terrainName, double episodeT, RandomGenerator random, boolean cacheOutcome
+  ) {
+    return buildLocomotionTask(terrainName, episodeT, StopCondition.never(), random, cacheOutcome);
+  }
+
+  public static Function<Robot, Outcome> buildLocomotionTask(
+      String terrainName,
+      double episodeT,
+      StopCondition stopCondition,
+      RandomGenerator random,
+      boolean cacheOutcome
   ) {
     if (!terrainName.contains("-rnd") && cacheOutcome) {
-      return Misc.cached(new Locomotion(episodeT, Locomotion.createTerrain(terrainName), PHYSICS_SETTINGS), CACHE_SIZE);
+      return Misc.cached(new Locomotion(
+          episodeT,
+          Locomotion.createTerrain(terrainName),
+          stopCondition,
+          PHYSICS_SETTINGS
+      ), CACHE_SIZE);
     }
     return r -> new Locomotion(
         episodeT,
         Locomotion.createTerrain(terrainName.replace("-rnd", "-" + random.nextInt(10000))),
+        stopCondition,
         PHYSICS_SETTINGS
     ).apply(r);
   }
 
+  //when the transformation or the terrain are random, each robot gets its own random generator, derived from the seed
+  //and from the robot itself: the quality of a robot hence does not depend on the order in which robots are evaluated,
+  //nor on the thread evaluating it, as long as the stop condition does not change during the evaluation of a
+  //generation (see thresholdUpdater())
+  public static Function<Robot, Outcome> buildQualityFunction(
+      String transformationName,
+      String terrainName,
+      double episodeT,
+      double transientT,
+      StopCondition stopCondition,
+      long seed,
+      boolean cacheOutcome
+  ) {
+    if (!transformationName.contains("rnd") && !terrainName.contains("-rnd")) {
+      return RobotUtils.buildRobotTransformation(transformationName, null)
+          .andThen(buildLocomotionTask(terrainName, episodeT, stopCondition, null, cacheOutcome))
+          .andThen(o -> o.subOutcome(transientT, episodeT));
+    }
+    return robot -> {
+      RandomGenerator random = Utils.derivedRandom(seed, SerializationUtils.digest(robot));
+      return RobotUtils.buildRobotTransformation(transformationName, random)
+          .andThen(buildLocomotionTask(terrainName, episodeT, stopCondition, random, false))
+          .apply(robot)
+          .subOutcome(transientT, episodeT);
+    };
+  }
+
+  private static final String VELOCITY_BOUND_STOP_CONDITION = "velocityBound-(?<v>[0-9]+(\\.[0-9]+)?)";
+
+  public static boolean isThresholdBased(String stopConditionName) {
+    return Utils.params(VELOCITY_BOUND_STOP_CONDITION, stopConditionName) != null;
+  }
+
+  public static StopCondition buildStopCondition(String name, double transientT, DoubleSupplier threshold) {
+    String noProgress = "noProgress-(?<interval>[0-9]+(\\.[0-9]+)?)-(?<d>[0-9]+(\\.[0-9]+)?)";
+    String upsideDown = "upsideDown-(?<angle>[0-9]+(\\.[0-9]+)?)-(?<interval>[0-9]+(\\.[0-9]+)?)";
+    String velocityBound = VELOCITY_BOUND_STOP_CONDITION;
+    Map<String, String> params;
+    if ((params = Utils.params(noProgress, name)) != null) {
+      return StopCondition.noProgress(Double.parseDouble(params.get("interval")), Double.parseDouble(params.get("d")));
+    }
+    if ((params = Utils.params(upsideDown, name)) != null) {
+      return StopCondition.upsideDown(
+          Double.parseDouble(params.get("angle")) / 180d * Math.PI,
+          Double.parseDouble(params.get("interval"))
+      );
+    }
+    if ((params = Utils.params(velocityBound, name)) != null) {
+      return StopCondition.velocityUpperBound(Double.parseDouble(params.get("v")), transientT, threshold);
+    }
+    throw new IllegalArgumentException(String.format("Unknown stop condition name: %s", name));
+  }
+
+  //the threshold is updated on the solver thread, before the listener (which may be deferred) and before the next
+  //generation is evaluated: all the robots of a generation are hence evaluated with the same threshold
+  private static <S extends POSetPopulationState<?, Robot, Outcome>> Listener<S> thresholdUpdater(
+      Listener<? super S> listener, AtomicDouble threshold, Function<Outcome, Double> fitnessFunction
+  ) {
+    return new Listener<>() {
+      @Override
+      public void listen(S state) {
+        threshold.set(state.getPopulation()
+            .all()
+            .stream()
+            .mapToDouble(i -> fitnessFunction.apply(i.fitness()))
+            .min()
+            .orElse(Double.NEGATIVE_INFINITY));
+        listener.listen(state);
+      }
+
+      @Override
+      public void done() {
+        listener.done();
+      }
+    };
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
   private static IterativeSolver<? extends POSetPopulationState<?, Robot, Outcome>,
       TotalOrderQualityBasedProblem<Robot, Outcome>, Robot> buildSolver(
@@ -123,15 +227,29 @@ public class Starter extends Worker {
 
   public static ValidationOutcome validate(
       Robot robot, String terrainName, String transformationName, int seed, double episodeTime, double transientTime
+  ) {
+    return validate(robot, terrainName, null, transformationName, seed, episodeTime, transientTime);
+  }
+
+  //the terrain, if not null, is used in place of the one built from its name, which is still used for the outcome
+  public static ValidationOutcome validate(
+      Robot robot,
+      String terrainName,
+      double[][] terrain,
+      String transformationName,
+      int seed,
+      double episodeTime,
+      double transientTime
   ) {
     RandomGenerator random = new Random(seed);
     robot = RobotUtils.buildRobotTransformation(transformationName, random).apply(robot);
-    return new ValidationOutcome(terrainName, transformationName, seed, buildLocomotionTask(
+    Function<Robot, Outcome> task = terrain == null ? buildLocomotionTask(
         terrainName,
         episodeTime,
         random,
         false
-    )
+    ) : new Locomotion(episodeTime, terrain, PHYSICS_SETTINGS);
+    return new ValidationOutcome(terrainName, transformationName, seed, task
         .apply(robot)
         .subOutcome(transientTime, episodeTime));
   }
@@ -160,6 +278,7 @@ public class Starter extends Worker {
     String allFileName = a("allFile", null);
     String finalFileName = a("finalFile", null);
     String validationFileName = a("validationFile", null);
+    int validationThreads = i(a("validationThreads", "1"));
     boolean deferred = a("deferred", "true").startsWith("t");
     String telegramBotId = a("telegramBotId", null);
     long telegramChatId = Long.parseLong(a("telegramChatId", "0"));
@@ -173,6 +292,9 @@ public class Starter extends Worker {
     List<String> validationTerrainNames = l(a("validationTerrain", "flat,downhill-30")).stream()
         .filter(s -> !s.isEmpty())
         .collect(Collectors.toList());
+    List<String> stopConditionNames = l(a("stopCondition", "")).stream() //e.g., noProgress-2-0.5,velocityBound-10
+        .filter(s -> !s.isEmpty())
+        .toList();
     Function<Outcome, Double> fitnessFunction = Outcome::getVelocity;
     //providers
     NamedProvider<SolverBuilder<?>> solverBuilderProvider = NamedProvider.of(Map.ofEntries(
@@ -182,12 +304,7 @@ public class Starter extends Worker {
             0.75,
             0.35,
             0.75,
-            (Function<Individual<?, Robot, Outcome>, double[]>) i -> i.fitness()
-                .getAveragePosture(8)
-                .values()
-                .stream()
-                .mapToDouble(b -> b ? 1d : 0d)
-                .toArray()
+            (Function<Individual<?, Robot, Outcome>, double[]>) i -> i.fitness().getAveragePostureDescriptor(8)
         ))
     ));
     NamedProvider<PrototypedFunctionBuilder<?, ?>> mapperBuilderProvider = NamedProvider.of(Map.ofEntries(
@@ -259,12 +376,21 @@ public class Starter extends Worker {
           best().then(serializationFunction(serializationFlags.contains("last")))
       )), keysFunctions(), new File(bestFileName)));
     }
+    SolutionArchive solutionArchive = null;
     if (allFileName != null) {
       List<NamedFunction<? super Pair<POSetPopulationState<?, Robot, Outcome>, Individual<?, Robot, Outcome>>, ?>> functions = new ArrayList<>();
       functions.addAll(stateExtractor().then(basicFunctions));
       functions.addAll(individualExtractor().then(basicIndividualFunctions));
-      functions.addAll(individualExtractor()
-          .then(serializationFunction(serializationFlags.contains("final"))));
+      if (serializationFlags.contains("all")) {
+        try {
+          solutionArchive = new SolutionArchive(new File(allFileName + SOLUTION_ARCHIVE_SUFFIX));
+        } catch (IOException e) {
+          L.severe(String.format("Cannot open solution archive: %s", e));
+        }
+      }
+      functions.addAll(individualExtractor().then(solutionArchive != null ?
+          serializationFunction(solutionArchive) :
+          serializationFunction(serializationFlags.contains("all"))));
       factories.add(new CSVPrinter<>(
           functions,
           keysFunctions(),
@@ -283,8 +409,13 @@ public class Starter extends Worker {
           new File(finalFileName)
       ).forEach(populationSplitter()).onLast());
     }
-    //validation listener
+    //validation listener: with more than one thread, validations run on their own pool, since the listener itself may
+    //be deferred on the solver one
+    ExecutorService validationExecutorService = null;
     if (validationFileName != null) {
+      if (validationThreads > 1) {
+        validationExecutorService = Executors.newFixedThreadPool(validationThreads);
+      }
       if (!validationTerrainNames.isEmpty() && validationTransformationNames.isEmpty()) {
         validationTransformationNames.add("identity");
       }
@@ -304,9 +435,14 @@ public class Starter extends Worker {
                   validationTransformationNames,
                   List.of(0),
                   validationEpisodeTime,
-                  validationTransientTime
+                  validationTransientTime,
+                  validationExecutorService
               ))).onLast());
     }
+    //selection threshold: the worst fitness in the population, used by velocity bound stop conditions; outcomes
+    //depend on it, hence they are not cached
+    AtomicDouble selectionThreshold = new AtomicDouble(Double.NEGATIVE_INFINITY);
+    boolean thresholdBased = stopConditionNames.stream().anyMatch(Starter::isThresholdBased);
     //telegram listener
     if (telegramBotId != null && telegramChatId != 0) {
       factories.add(new TelegramUpdater<>(List.of(
@@ -341,6 +477,10 @@ public class Starter extends Worker {
                 for (String solverName : solverNames) {
                   counter = counter + 1;
                   final RandomGenerator random = new Random(seed);
+                  selectionThreshold.set(Double.NEGATIVE_INFINITY);
+                  StopCondition stopCondition = StopCondition.any(stopConditionNames.stream()
+                      .map(n -> buildStopCondition(n, episodeTransientTime, selectionThreshold::get))
+                      .toList());
                   //prepare keys
                   Map<String, Object> keys = Map.ofEntries(
                       Map.entry("experiment.name", experimentName),
@@ -381,13 +521,19 @@ public class Starter extends Worker {
                     if (deferred) {
                       listener = listener.deferred(executorService);
                     }
+                    if (thresholdBased) {
+                      listener = thresholdUpdater(listener, selectionThreshold, fitnessFunction);
+                    }
                     Problem problem = new Problem(
-                        RobotUtils.buildRobotTransformation(transformationName, random)
-                            .andThen(buildLocomotionTask(terrainName, episodeTime, random, cacheOutcome))
-                            .andThen(o -> o.subOutcome(
-                                episodeTransientTime,
-                                episodeTime
-                            )),
+                        buildQualityFunction(
+                            transformationName,
+                            terrainName,
+                            episodeTime,
+                            episodeTransientTime,
+                            stopCondition,
+                            seed,
+                            cacheOutcome && !thresholdBased
+                        ),
                         Comparator.comparing(fitnessFunction).reversed()
                     );
                     Collection<Robot> solutions = solver.solve(problem, random, executorService, listener);
@@ -408,7 +554,33 @@ public class Starter extends Worker {
         }
       }
     }
+    //deferred listeners may still be running on the solver pool, possibly validating on the validation pool
+    if (deferred) {
+      awaitTermination(executorService);
+    }
     factory.shutdown();
+    if (validationExecutorService != null) {
+      awaitTermination(validationExecutorService);
+    }
+    if (solutionArchive != null) {
+      try {
+        solutionArchive.close();
+      } catch (IOException e) {
+        L.severe(String.format("Cannot close solution archive: %s", e));
+      }
+    }
+  }
+
+  private void awaitTermination(ExecutorService executorService) {
+    executorService.shutdown();
+    try {
+      if (!executorService.awaitTermination(TERMINATION_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+        L.warning(String.format("Cannot complete pending tasks in %dm", TERMINATION_TIMEOUT_MINUTES));
+      }
+    } catch (InterruptedException e) {
+      L.warning(String.format("Interrupted while completing pending tasks: %s", e));
+      Thread.currentThread().interrupt();
+    }
   }
 
 }
@@ -0,0 +1,148 @@
+package it.units.erallab.evolution.utils;
+
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An append-only, gzipped file of JSON serialized solutions, one line {@code hash;serialization} per distinct
+ * solution. Solutions are referenced by the hash of their serialization: a solution whose serialization has already
+ * been written, also by a previous run on the same file, is not written again, and the very same object is not even
+ * serialized again. A new solution is written and flushed before its hash is returned, hence before any row
+ * referencing it can be written elsewhere.
+ */
+public class SolutionArchive implements Closeable {
+
+  public static final String SEPARATOR = ";";
+  private static final Logger L = Logger.getLogger(SolutionArchive.class.getName());
+  private static final String PREVIOUS_FILE_SUFFIX = ".previous";
+  private static final int BUFFER_SIZE = 65536;
+
+  private final Writer writer;
+  private final Map<Object, String> references;
+  private final Set<String> writtenHashes;
+
+  public SolutionArchive(File file) throws IOException {
+    references = Collections.synchronizedMap(new WeakHashMap<>());
+    writtenHashes = new HashSet<>();
+    //solutions of previous runs are rewritten, up to the last complete one if the file was truncated, so that new
+    //solutions are not appended after a broken gzip stream and existing ones are not written twice; if the previous
+    //file is still there, a rewrite has been interrupted, and the file holds only part of it: the previous file is
+    //hence the one to recover from
+    File previousFile = new File(file.getPath() + PREVIOUS_FILE_SUFFIX);
+    if (previousFile.exists()) {
+      L.warning(String.format("Recovering solution archive from %s", previousFile));
+    } else if (file.exists()) {
+      Files.move(file.toPath(), previousFile.toPath());
+    } else {
+      previousFile = null;
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(
+        new GZIPOutputStream(new FileOutputStream(file), true),
+        StandardCharsets.UTF_8
+    ));
+    if (previousFile != null) {
+      read(previousFile, (hash, serialization) -> {
+        if (writtenHashes.add(hash)) {
+          try {
+            writer.write(hash + SEPARATOR + serialization + System.lineSeparator());
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      });
+      writer.flush();
+      Files.delete(previousFile.toPath());
+    }
+  }
+
+  public static Map<String, String> read(File file) throws IOException {
+    Map<String, String> serializations = new LinkedHashMap<>();
+    read(file, serializations::put);
+    return serializations;
+  }
+
+  //a file truncated by an interrupted run is read up to its last complete line: lines are hence split on the raw
+  //bytes, since buffered readers drop what they have buffered when the stream ends unexpectedly
+  public static void read(File file, BiConsumer<String, String> consumer) throws IOException {
+    try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      try {
+        while ((n = is.read(buffer)) > 0) {
+          int start = 0;
+          for (int i = 0; i < n; i++) {
+            if (buffer[i] == '\n') {
+              line.write(buffer, start, i - start);
+              accept(line.toString(StandardCharsets.UTF_8).strip(), consumer);
+              line.reset();
+              start = i + 1;
+            }
+          }
+          line.write(buffer, start, n - start);
+        }
+      } catch (EOFException e) {
+        L.warning(String.format("Solution archive %s is truncated: %s", file, e));
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static void accept(String line, BiConsumer<String, String> consumer) {
+    int index = line.indexOf(SEPARATOR);
+    if (index > 0) {
+      consumer.accept(line.substring(0, index), line.substring(index + SEPARATOR.length()));
+    }
+  }
+
+  private static String hash(String serialization) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(serialization.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (writer) {
+      writer.close();
+    }
+  }
+
+  public String reference(Object solution) {
+    String hash = references.get(solution);
+    if (hash != null) {
+      return hash;
+    }
+    String serialization = SerializationUtils.serialize(solution, SerializationUtils.Mode.JSON);
+    hash = hash(serialization);
+    //a concurrent caller with the same solution waits here until the solution is on the file
+    synchronized (writer) {
+      if (!writtenHashes.contains(hash)) {
+        try {
+          writer.write(hash + SEPARATOR + serialization + System.lineSeparator());
+          writer.flush();
+        } catch (IOException e) {
+          throw new UncheckedIOException(String.format("Cannot write solution due to %s", e), e);
+        }
+        writtenHashes.add(hash);
+      }
+    }
+    references.put(solution, hash);
+    return hash;
+  }
+
+}
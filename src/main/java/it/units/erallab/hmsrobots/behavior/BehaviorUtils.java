@@ -19,10 +19,12 @@ package it.units.erallab.hmsrobots.behavior;
 
 import it.units.erallab.hmsrobots.core.geometry.BoundingBox;
 import it.units.erallab.hmsrobots.core.geometry.Point2;
+import it.units.erallab.hmsrobots.core.geometry.Poly;
 import it.units.erallab.hmsrobots.core.geometry.Shape;
 import it.units.erallab.hmsrobots.core.snapshots.RobotShape;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.math3.complex.Complex;
@@ -55,37 +57,82 @@ public class BehaviorUtils {
     return Point2.of(x / (double) shapes.size(), y / (double) shapes.size());
   }
 
+  //average of the centers of the non-null shapes of the grid
+  public static Point2 center(Grid<? extends Shape> shapes) {
+    double x = 0d;
+    double y = 0d;
+    int count = 0;
+    for (int j = 0; j < shapes.getH(); j++) {
+      for (int i = 0; i < shapes.getW(); i++) {
+        Shape shape = shapes.get(i, j);
+        if (shape != null) {
+          Point2 center = shape.center();
+          x = x + center.x();
+          y = y + center.y();
+          count = count + 1;
+        }
+      }
+    }
+    return Point2.of(x / (double) count, y / (double) count);
+  }
+
   public static Grid<Boolean> computeAveragePosture(Collection<Grid<Boolean>> postures) {
-    int w = postures.iterator().next().getW();
-    int h = postures.iterator().next().getH();
-    return Grid.create(
-        w,
-        h,
-        (x, y) -> postures.stream().mapToDouble(p -> p.get(x, y) ? 1d : 0d).average().orElse(0d) > 0.5d
-    );
+    return computeAveragePostureMask(postures.stream().map(BooleanGrid::from).toList()).toGrid();
+  }
+
+  public static BooleanGrid computeAveragePostureMask(Collection<BooleanGrid> postures) {
+    BooleanGrid first = postures.iterator().next();
+    int[] counts = new int[first.size()];
+    for (BooleanGrid posture : postures) {
+      posture.addTo(counts);
+    }
+    return computeAveragePostureMask(counts, postures.size(), first.getW(), first.getH());
+  }
+
+  //counts are the number of postures, among nOfPostures, in which each cell is true
+  public static BooleanGrid computeAveragePostureMask(int[] counts, int nOfPostures, int w, int h) {
+    BooleanGrid average = new BooleanGrid(w, h);
+    for (int i = 0; i < counts.length; i++) {
+      average.set(i, (double) counts[i] / (double) nOfPostures > 0.5d);
+    }
+    return average;
   }
 
   public static Footprint computeFootprint(Collection<? extends VoxelPoly> polies, int n) {
-    double robotMinX = polies.stream()
-        .mapToDouble(b -> b.boundingBox().min().x())
-        .min()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMaxX = polies.stream()
-        .mapToDouble(b -> b.boundingBox().max().x())
-        .max()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    List<DoubleRange> contacts = polies.stream()
-        .filter(VoxelPoly::isTouchingGround)
-        .map(b -> DoubleRange.of(b.boundingBox().min().x(), b.boundingBox().max().x())).toList();
     boolean[] mask = new boolean[n];
-    for (DoubleRange contact : contacts) {
-      int minIndex = (int) Math.round((contact.min() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      int maxIndex = (int) Math.round((contact.max() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      for (int x = minIndex; x <= Math.min(maxIndex, n - 1); x++) {
-        mask[x] = true;
+    computeFootprint(polies, mask);
+    return new Footprint(mask);
+  }
+
+  //fills the mask with the footprint of the polies, skipping null ones, with no intermediate objects
+  public static void computeFootprint(Iterable<? extends VoxelPoly> polies, boolean[] mask) {
+    int n = mask.length;
+    double[] box = new double[4];
+    double robotMinX = Double.POSITIVE_INFINITY;
+    double robotMaxX = Double.NEGATIVE_INFINITY;
+    boolean empty = true;
+    for (VoxelPoly poly : polies) {
+      if (poly != null) {
+        bounds(poly, box);
+        robotMinX = Math.min(robotMinX, box[0]);
+        robotMaxX = Math.max(robotMaxX, box[2]);
+        empty = false;
+      }
+    }
+    if (empty) {
+      throw new IllegalArgumentException("Empty robot");
+    }
+    Arrays.fill(mask, false);
+    for (VoxelPoly poly : polies) {
+      if (poly != null && poly.isTouchingGround()) {
+        bounds(poly, box);
+        int minIndex = (int) Math.round((box[0] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+        int maxIndex = (int) Math.round((box[2] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+        for (int x = minIndex; x <= Math.min(maxIndex, n - 1); x++) {
+          mask[x] = true;
+        }
       }
     }
-    return new Footprint(mask);
   }
 
   public static List<Gait> computeGaits(
@@ -161,23 +208,37 @@ public class BehaviorUtils {
   }
 
   public static Grid<Boolean> computePosture(Collection<? extends Shape> shapes, int n) {
-    Collection<BoundingBox> boxes = shapes.stream().map(Shape::boundingBox).toList();
-    double robotMinX = boxes.stream()
-        .mapToDouble(b -> b.min().x())
-        .min()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMaxX = boxes.stream()
-        .mapToDouble(b -> b.max().x())
-        .max()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMinY = boxes.stream()
-        .mapToDouble(b -> b.min().y())
-        .min()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
-    double robotMaxY = boxes.stream()
-        .mapToDouble(b -> b.max().y())
-        .max()
-        .orElseThrow(() -> new IllegalArgumentException("Empty robot"));
+    return computePostureMask(shapes, n).toGrid();
+  }
+
+  public static BooleanGrid computePostureMask(Collection<? extends Shape> shapes, int n) {
+    BooleanGrid mask = new BooleanGrid(n, n);
+    computePostureMask(shapes, mask);
+    return mask;
+  }
+
+  //fills the n x n mask with the posture of the shapes, skipping null ones, with no intermediate objects
+  public static void computePostureMask(Iterable<? extends Shape> shapes, BooleanGrid mask) {
+    int n = mask.getW();
+    double[] box = new double[4];
+    double robotMinX = Double.POSITIVE_INFINITY;
+    double robotMinY = Double.POSITIVE_INFINITY;
+    double robotMaxX = Double.NEGATIVE_INFINITY;
+    double robotMaxY = Double.NEGATIVE_INFINITY;
+    boolean empty = true;
+    for (Shape shape : shapes) {
+      if (shape != null) {
+        bounds(shape, box);
+        robotMinX = Math.min(robotMinX, box[0]);
+        robotMinY = Math.min(robotMinY, box[1]);
+        robotMaxX = Math.max(robotMaxX, box[2]);
+        robotMaxY = Math.max(robotMaxY, box[3]);
+        empty = false;
+      }
+    }
+    if (empty) {
+      throw new IllegalArgumentException("Empty robot");
+    }
     //adjust box to make it squared
     if ((robotMaxY - robotMinY) < (robotMaxX - robotMinX)) {
       double d = (robotMaxX - robotMinX) - (robotMaxY - robotMinY);
@@ -188,19 +249,44 @@ public class BehaviorUtils {
       robotMaxX = robotMaxX + d / 2;
       robotMinX = robotMinX - d / 2;
     }
-    Grid<Boolean> mask = Grid.create(n, n, false);
-    for (BoundingBox b : boxes) {
-      int minXIndex = (int) Math.round((b.min().x() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      int maxXIndex = (int) Math.round((b.max().x() - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
-      int minYIndex = (int) Math.round((b.min().y() - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
-      int maxYIndex = (int) Math.round((b.max().y() - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
-      for (int x = minXIndex; x <= maxXIndex; x++) {
-        for (int y = minYIndex; y <= maxYIndex; y++) {
-          mask.set(x, y, true);
-        }
+    mask.clear();
+    for (Shape shape : shapes) {
+      if (shape != null) {
+        bounds(shape, box);
+        int minXIndex = (int) Math.round((box[0] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+        int maxXIndex = (int) Math.round((box[2] - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
+        int minYIndex = (int) Math.round((box[1] - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
+        int maxYIndex = (int) Math.round((box[3] - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
+        mask.setRectangle(minXIndex, maxXIndex, minYIndex, maxYIndex);
       }
     }
-    return mask;
+  }
+
+  //puts minX, minY, maxX, maxY of the bounding box of the shape in box, without building it for polygons
+  private static void bounds(Shape shape, double[] box) {
+    Point2[] vertexes;
+    if (shape instanceof VoxelPoly voxelPoly) {
+      vertexes = voxelPoly.vertexes();
+    } else if (shape instanceof Poly poly) {
+      vertexes = poly.vertexes();
+    } else {
+      BoundingBox boundingBox = shape.boundingBox();
+      box[0] = boundingBox.min().x();
+      box[1] = boundingBox.min().y();
+      box[2] = boundingBox.max().x();
+      box[3] = boundingBox.max().y();
+      return;
+    }
+    box[0] = Double.POSITIVE_INFINITY;
+    box[1] = Double.POSITIVE_INFINITY;
+    box[2] = Double.NEGATIVE_INFINITY;
+    box[3] = Double.NEGATIVE_INFINITY;
+    for (Point2 vertex : vertexes) {
+      box[0] = Math.min(box[0], vertex.x());
+      box[1] = Math.min(box[1], vertex.y());
+      box[2] = Math.max(box[2], vertex.x());
+      box[3] = Math.max(box[3], vertex.y());
+    }
   }
 
   public static SortedMap<Double, Footprint> computeQuantizedFootprints(
@@ -233,7 +319,18 @@ public class BehaviorUtils {
   public static SortedMap<DoubleRange, Double> computeQuantizedSpectrum(
       SortedMap<Double, Double> signal, double minF, double maxF, int nBins
   ) {
-    SortedMap<Double, Double> spectrum = computeSpectrum(signal);
+    return quantizeSpectrum(computeSpectrum(signal), minF, maxF, nBins);
+  }
+
+  public static SortedMap<DoubleRange, Double> computeQuantizedSpectrum(
+      double[] signal, double dT, double minF, double maxF, int nBins
+  ) {
+    return quantizeSpectrum(computeSpectrum(signal, dT), minF, maxF, nBins);
+  }
+
+  private static SortedMap<DoubleRange, Double> quantizeSpectrum(
+      SortedMap<Double, Double> spectrum, double minF, double maxF, int nBins
+  ) {
     SortedMap<DoubleRange, Double> qSpectrum = new TreeMap<>(Comparator.comparingDouble(DoubleRange::min));
     double binSpan = (maxF - minF) / (double) nBins;
     for (int i = 0; i < nBins; i++) {
@@ -284,11 +381,29 @@ public class BehaviorUtils {
   }
 
   public static <K> K getCentralElement(Grid<K> grid) {
-    if (grid.values().stream().noneMatch(Objects::nonNull)) {
+    int index = getCentralIndex(grid);
+    return grid.get(index % grid.getW(), index / grid.getW());
+  }
+
+  //index (x+y*w) of the cell closest to the average position of the non-null elements
+  public static int getCentralIndex(Grid<?> grid) {
+    long sumX = 0;
+    long sumY = 0;
+    int count = 0;
+    for (int y = 0; y < grid.getH(); y++) {
+      for (int x = 0; x < grid.getW(); x++) {
+        if (grid.get(x, y) != null) {
+          sumX = sumX + x;
+          sumY = sumY + y;
+          count = count + 1;
+        }
+      }
+    }
+    if (count == 0) {
       throw new IllegalArgumentException("Cannot get central element of an empty grid");
     }
-    double mX = grid.stream().filter(e -> e.value() != null).mapToInt(e -> e.key().x()).average().orElse(0d);
-    double mY = grid.stream().filter(e -> e.value() != null).mapToInt(e -> e.key().y()).average().orElse(0d);
+    double mX = (double) sumX / (double) count;
+    double mY = (double) sumY / (double) count;
     double minD = Double.MAX_VALUE;
     int closestX = 0;
     int closestY = 0;
@@ -302,7 +417,7 @@ public class BehaviorUtils {
         }
       }
     }
-    return grid.get(closestX, closestY);
+    return closestX + closestY * grid.getW();
   }
 
   private static <K> K mode(Collection<K> collection) {
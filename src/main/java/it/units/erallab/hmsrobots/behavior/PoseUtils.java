@@ -17,6 +17,8 @@
 
 package it.units.erallab.hmsrobots.behavior;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import it.units.erallab.hmsrobots.core.controllers.PosesController;
 import it.units.erallab.hmsrobots.core.objects.Robot;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
@@ -39,9 +41,18 @@ import java.util.stream.Collectors;
  */
 public class PoseUtils {
 
+  private static final int POSTURE_CACHE_SIZE = 10000;
+  private static final Cache<PostureKey, Grid<Boolean>> POSTURE_CACHE = CacheBuilder.newBuilder()
+      .maximumSize(POSTURE_CACHE_SIZE)
+      .build();
+
   private PoseUtils() {
   }
 
+  private record PostureKey(
+      Grid<Boolean> shape, Set<Grid.Key> pose, String voxelPrototype, double finalT, int gridSize
+  ) {}
+
   private record ClusterableGridKey(Grid.Key key) implements Clusterable {
 
     @Override
@@ -129,9 +140,14 @@ public class PoseUtils {
       }
       allPoses.add(combinedPose);
     }
-    //compute all postures
-    Collection<ClusterablePosture> points = allPoses.stream()
-        .map(p -> new ClusterablePosture(p, computeDynamicPosture(shape, p, voxelPrototype, finalT, gridSize)))
+    //compute all postures, in parallel and reusing the ones already computed
+    Grid<Boolean> shapeCopy = Grid.copy(shape);
+    String serializedVoxelPrototype = SerializationUtils.serialize(voxelPrototype, SerializationUtils.Mode.JSON);
+    Collection<ClusterablePosture> points = allPoses.parallelStream()
+        .map(p -> new ClusterablePosture(p, POSTURE_CACHE.asMap().computeIfAbsent(
+            new PostureKey(shapeCopy, Set.copyOf(p), serializedVoxelPrototype, finalT, gridSize),
+            k -> computeDynamicPosture(shapeCopy, p, voxelPrototype, finalT, gridSize)
+        )))
         .toList();
     //cluster postures in nPoses clusters
     KMeansPlusPlusClusterer<ClusterablePosture> clusterer = new KMeansPlusPlusClusterer<>(
@@ -18,22 +18,46 @@
 package it.units.erallab.hmsrobots.core.controllers;
 
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 import java.io.Serializable;
 
 public abstract class AbstractController implements Controller, Serializable {
 
+  private transient DoubleGrid controlSignals;
+
   public abstract Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels);
 
+  //fills controlSignals, sized as voxels, in place; missing signals are set to 0
+  public void computeControlSignals(double t, Grid<Voxel> voxels, DoubleGrid controlSignals) {
+    Grid<Double> grid = computeControlSignals(t, voxels);
+    for (int i = 0; i < controlSignals.size(); i++) {
+      Double controlSignal = grid.get(controlSignals.x(i), controlSignals.y(i));
+      controlSignals.set(i, controlSignal == null ? 0d : controlSignal);
+    }
+  }
+
+  protected static Grid<Double> toGrid(DoubleGrid controlSignals, Grid<Voxel> voxels) {
+    return Grid.create(
+        voxels.getW(),
+        voxels.getH(),
+        (x, y) -> voxels.get(x, y) == null ? null : controlSignals.get(x, y)
+    );
+  }
+
   @Override
   public void control(double t, Grid<Voxel> voxels) {
-    Grid<Double> controlSignals = computeControlSignals(t, voxels);
-    voxels.forEach(e -> {
-      if (e.value() != null) {
-        e.value().applyForce(controlSignals.get(e.key().x(), e.key().y()));
+    if (controlSignals == null || controlSignals.getW() != voxels.getW() || controlSignals.getH() != voxels.getH()) {
+      controlSignals = new DoubleGrid(voxels.getW(), voxels.getH());
+    }
+    computeControlSignals(t, voxels, controlSignals);
+    for (int i = 0; i < controlSignals.size(); i++) {
+      Voxel voxel = voxels.get(controlSignals.x(i), controlSignals.y(i));
+      if (voxel != null) {
+        voxel.applyForce(controlSignals.get(i));
       }
-    });
+    }
   }
 
   public AbstractController smoothed(double controlSignalSpeed) {
@@ -44,4 +68,8 @@ public abstract class AbstractController implements Controller, Serializable {
     return new StepController(this, stepT);
   }
 
+  public AbstractController step(double stepT, boolean skipSensing) {
+    return new StepController(this, stepT, skipSensing);
+  }
+
 }
@@ -24,10 +24,12 @@ import it.units.erallab.hmsrobots.core.snapshots.ScopedReadings;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.core.snapshots.StackedScopedReadings;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -45,8 +47,14 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
   @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
   private TimedRealFunction function;
   private double[] inputs;
+  private double[] collectedInputs;
   private double[] outputs;
   private DoubleRange[] inputDomains;
+  private transient Grid<Voxel> layoutVoxels;
+  private transient double[] layoutBuffer;
+  private transient boolean contiguousInputs;
+  private transient Voxel[] inputVoxels;
+  private transient int[] outputCellIndexes;
 
   public CentralizedSensing(
       @JsonProperty("nOfInputs") int nOfInputs,
@@ -56,6 +64,8 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
     this.nOfInputs = nOfInputs;
     this.nOfOutputs = nOfOutputs;
     outputDomains = DoubleRange.of(-1d, 1d, nOfOutputs);
+    inputs = new double[nOfInputs];
+    outputs = new double[nOfOutputs];
     setFunction(function);
   }
 
@@ -84,33 +94,81 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
 
   @Override
   public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    //collect inputs
-    inputs = voxels.values().stream()
-        .filter(Objects::nonNull)
-        .map(Voxel::getSensorReadings)
-        .reduce(ArrayUtils::addAll)
-        .orElse(new double[nOfInputs]);
-    inputDomains = voxels.values().stream()
-        .filter(Objects::nonNull)
-        .map(Voxel::getSensors)
-        .flatMap(Collection::stream)
-        .map(Sensor::getDomains)
-        .reduce(ArrayUtils::addAll)
-        .orElse(DoubleRange.of(-1d, 1d, nOfInputs));
-    //compute outputs
-    outputs = function != null ? function.apply(t, inputs) : new double[nOfOutputs];
+    computeOutputs(t, voxels);
     //apply inputs
     Grid<Double> controlSignals = Grid.create(voxels.getW(), voxels.getH());
+    for (int c = 0; c < outputCellIndexes.length; c++) {
+      controlSignals.set(outputCellIndexes[c] % voxels.getW(), outputCellIndexes[c] / voxels.getW(), outputs[c]);
+    }
+    return controlSignals;
+  }
+
+  @Override
+  public void computeControlSignals(double t, Grid<Voxel> voxels, DoubleGrid controlSignals) {
+    computeOutputs(t, voxels);
+    controlSignals.fill(0d);
+    for (int c = 0; c < outputCellIndexes.length; c++) {
+      controlSignals.set(outputCellIndexes[c], outputs[c]);
+    }
+  }
+
+  //computes once the voxel order, the input domains, whether readings can be used in place and the output cells
+  private void compileLayout(Grid<Voxel> voxels) {
+    inputVoxels = voxels.values().stream().filter(Objects::nonNull).toArray(Voxel[]::new);
+    layoutVoxels = voxels;
+    layoutBuffer = inputVoxels.length > 0 ? inputVoxels[0].getSensorReadingsBuffer() : null;
+    int offset = 0;
+    contiguousInputs = layoutBuffer != null;
+    for (Voxel voxel : inputVoxels) {
+      contiguousInputs = contiguousInputs && voxel.getSensorReadingsBuffer() == layoutBuffer && voxel.getSensorReadingsOffset() == offset;
+      offset = offset + voxel.nOfSensorReadings();
+    }
+    contiguousInputs = contiguousInputs && layoutBuffer.length == nOfInputs;
+    if (collectedInputs == null) {
+      collectedInputs = new double[nOfInputs];
+    }
+    if (inputDomains == null) {
+      inputDomains = Arrays.stream(inputVoxels)
+          .map(Voxel::getSensors)
+          .flatMap(Collection::stream)
+          .map(Sensor::getDomains)
+          .reduce(ArrayUtils::addAll)
+          .orElse(DoubleRange.of(-1d, 1d, nOfInputs));
+    }
+    outputCellIndexes = new int[Math.min(inputVoxels.length, nOfOutputs)];
     int c = 0;
-    for (Grid.Entry<Voxel> entry : voxels) {
-      if (entry.value() != null) {
-        if (c < outputs.length) {
-          controlSignals.set(entry.key().x(), entry.key().y(), outputs[c]);
-          c = c + 1;
-        }
+    for (int i = 0; i < voxels.getW() * voxels.getH() && c < outputCellIndexes.length; i++) {
+      if (voxels.get(i % voxels.getW(), i / voxels.getW()) != null) {
+        outputCellIndexes[c] = i;
+        c = c + 1;
       }
     }
-    return controlSignals;
+  }
+
+  private void computeOutputs(double t, Grid<Voxel> voxels) {
+    if (voxels != layoutVoxels || (inputVoxels.length > 0 && inputVoxels[0].getSensorReadingsBuffer() != layoutBuffer)) {
+      compileLayout(voxels);
+    }
+    //collect inputs
+    inputs = collectInputs();
+    //compute outputs
+    outputs = function != null ? function.apply(t, inputs) : new double[nOfOutputs];
+  }
+
+  //when the voxels write their readings contiguously in the robot buffer, it is copied at once; the function gets a
+  //copy since it might modify its input, which is also read by voxels and snapshots
+  private double[] collectInputs() {
+    if (contiguousInputs) {
+      System.arraycopy(layoutBuffer, 0, collectedInputs, 0, nOfInputs);
+      return collectedInputs;
+    }
+    int offset = 0;
+    for (Voxel voxel : inputVoxels) {
+      int length = Math.min(voxel.nOfSensorReadings(), nOfInputs - offset);
+      System.arraycopy(voxel.getSensorReadingsBuffer(), voxel.getSensorReadingsOffset(), collectedInputs, offset, length);
+      offset = offset + length;
+    }
+    return collectedInputs;
   }
 
   public TimedRealFunction getFunction() {
@@ -132,8 +190,8 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
   public Snapshot getSnapshot() {
     Snapshot snapshot = new Snapshot(
         new StackedScopedReadings(
-            new ScopedReadings(inputs, inputDomains),
-            new ScopedReadings(outputs, outputDomains)
+            new ScopedReadings(Arrays.copyOf(inputs, inputs.length), inputDomains),
+            new ScopedReadings(Arrays.copyOf(outputs, outputs.length), outputDomains)
         ),
         getClass()
     );
@@ -153,6 +211,7 @@ public class CentralizedSensing extends AbstractController implements Snapshotta
 
   @Override
   public void reset() {
+    layoutVoxels = null;
     if (function instanceof Resettable) {
       ((Resettable) function).reset();
     }
@@ -10,6 +10,11 @@ public abstract class CompositeController extends AbstractController {
     this.innerController = innerController;
   }
 
+  @Override
+  public boolean needsSensorReadings(double t) {
+    return innerController.needsSensorReadings(t);
+  }
+
   public AbstractController getInnermostController() {
     return innerController instanceof CompositeController cc ? cc.getInnermostController() : innerController;
   }
@@ -28,6 +28,11 @@ public interface Controller extends Resettable {
 
   void control(double t, Grid<Voxel> voxels);
 
+  //tells if the controller will read the sensors at t: if not, voxels can skip sampling them
+  default boolean needsSensorReadings(double t) {
+    return true;
+  }
+
   static Controller empty() {
     return new Controller() {
       @Override
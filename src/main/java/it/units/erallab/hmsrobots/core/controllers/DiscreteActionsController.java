@@ -23,12 +23,11 @@ import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.RobotUtils;
 import it.units.erallab.hmsrobots.viewers.GridOnlineViewer;
-import org.apache.commons.lang3.ArrayUtils;
 import org.dyn4j.dynamics.Settings;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
 
 public class DiscreteActionsController extends AbstractController {
 
@@ -41,18 +40,24 @@ public class DiscreteActionsController extends AbstractController {
   private final List<Action> actions;
   private TimedRealFunction function;
 
-  private final List<List<Double>> actionLastStartingTimes;
   private final int maxConcurrentActions;
   private final double actionDuration;
 
+  //circular buffers of the last starting times of each action
+  private transient double[][] actionStartingTimes;
+  private transient int[] actionNextIndexes;
+  private transient int[] actionCounts;
+  private transient double[] inputs;
+  private transient Grid.Key[] voxelKeys;
+  private transient double[] actuations;
+
   public DiscreteActionsController(int nOfInputs, List<Action> actions, TimedRealFunction function, int maxConcurrentActions, double actionDuration) {
     this.nOfInputs = nOfInputs;
     this.actions = actions;
     setFunction(function);
     this.maxConcurrentActions = maxConcurrentActions;
     this.actionDuration = actionDuration;
-    actionLastStartingTimes = new ArrayList<>(actions.size());
-    actionLastStartingTimes.addAll(Collections.nCopies(actions.size(), new ArrayList<>()));
+    reset();
   }
 
   public DiscreteActionsController(Grid<Voxel> voxels, List<Action> actions, TimedRealFunction function, int maxConcurrentActions, double actionDuration) {
@@ -70,44 +75,78 @@ public class DiscreteActionsController extends AbstractController {
     this.function = function;
   }
 
-  @Override
-  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    // 1. read the inputs and put them in a double[] inputs
-    double[] inputs = voxels.values().stream()
-        .filter(Objects::nonNull)
-        .map(Voxel::getSensorReadings)
-        .reduce(ArrayUtils::addAll)
-        .orElse(new double[nOfInputs]);
+  private void computeActuations(double t, Grid<Voxel> voxels) {
+    if (voxelKeys == null) {
+      voxelKeys = voxels.stream().filter(e -> e.value() != null).map(Grid.Entry::key).toArray(Grid.Key[]::new);
+      actuations = new double[voxelKeys.length];
+    }
+    // 1. read the inputs and put them in the inputs buffer
+    int offset = 0;
+    for (Grid.Key key : voxelKeys) {
+      Voxel voxel = voxels.get(key.x(), key.y());
+      int length = Math.min(voxel.nOfSensorReadings(), nOfInputs - offset);
+      System.arraycopy(voxel.getSensorReadingsBuffer(), voxel.getSensorReadingsOffset(), inputs, offset, length);
+      offset = offset + length;
+    }
     // 2. apply the function and obtain a double[] outputs
     double[] outputs = function != null ? function.apply(t, inputs) : new double[actions.size() + 1];
     // 3. obtain an action index (including 0=no action) from outputs
     int actionIndex = maxIndex(outputs);
-    // 4. add the action to ongoing actions
-    if (actionIndex < actions.size()) { // actions.size() means no action
-      actionLastStartingTimes.get(actionIndex).add(t);
+    // 4. add the action to ongoing actions, possibly overwriting the oldest one; with no room, actions are ignored
+    if (actionIndex < actions.size() && maxConcurrentActions > 0) { // actions.size() means no action
+      actionStartingTimes[actionIndex][actionNextIndexes[actionIndex]] = t;
+      actionNextIndexes[actionIndex] = (actionNextIndexes[actionIndex] + 1) % maxConcurrentActions;
+      actionCounts[actionIndex] = Math.min(actionCounts[actionIndex] + 1, maxConcurrentActions);
+    }
+    // 5. update ongoing actions (remove old actions, which are the oldest in the buffer)
+    for (int i = 0; i < actions.size(); i++) {
+      while (actionCounts[i] > 0 && actionStartingTimes[i][oldestIndex(i)] <= t - actionDuration) {
+        actionCounts[i] = actionCounts[i] - 1;
+      }
     }
-    // 5. update ongoing actions (remove old actions and/or take just last ones)
-    actionLastStartingTimes.replaceAll(times -> times.stream()
-        .filter(t0 -> t0 > t - actionDuration)
-        .sorted(Comparator.reverseOrder())
-        .limit(maxConcurrentActions)
-        .collect(Collectors.toList()));
     // 6. apply all ongoing actions
-    Grid<Double> actuations = Grid.create(voxels, v -> 0d);
+    Arrays.fill(actuations, 0d);
     for (int i = 0; i < actions.size(); i++) {
-      for (double t0 : actionLastStartingTimes.get(i)) { // ongoing i-th actions
-        double dt = t - t0;
-        for (Grid.Entry<Double> e : actuations) {
-          double deltaActuation = actions.get(i).apply(dt, e.key());
-          actuations.set(e.key().x(), e.key().y(), e.value() + deltaActuation);
+      Action action = actions.get(i);
+      for (int j = 0; j < actionCounts[i]; j++) { // ongoing i-th actions
+        double dt = t - actionStartingTimes[i][(oldestIndex(i) + j) % maxConcurrentActions];
+        for (int k = 0; k < voxelKeys.length; k++) {
+          actuations[k] = actuations[k] + action.apply(dt, voxelKeys[k]);
         }
       }
     }
-    return actuations;
+  }
+
+  @Override
+  public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
+    computeActuations(t, voxels);
+    Grid<Double> controlSignals = Grid.create(voxels, v -> 0d);
+    for (int k = 0; k < voxelKeys.length; k++) {
+      controlSignals.set(voxelKeys[k].x(), voxelKeys[k].y(), actuations[k]);
+    }
+    return controlSignals;
+  }
+
+  @Override
+  public void control(double t, Grid<Voxel> voxels) {
+    computeActuations(t, voxels);
+    for (int k = 0; k < voxelKeys.length; k++) {
+      voxels.get(voxelKeys[k].x(), voxelKeys[k].y()).applyForce(actuations[k]);
+    }
+  }
+
+  private int oldestIndex(int actionIndex) {
+    return (actionNextIndexes[actionIndex] - actionCounts[actionIndex] + maxConcurrentActions) % maxConcurrentActions;
   }
 
   @Override
   public void reset() {
+    actionStartingTimes = new double[actions.size()][maxConcurrentActions];
+    actionNextIndexes = new int[actions.size()];
+    actionCounts = new int[actions.size()];
+    inputs = new double[nOfInputs];
+    voxelKeys = null;
+    actuations = null;
   }
 
   private static int maxIndex(double[] vs) {
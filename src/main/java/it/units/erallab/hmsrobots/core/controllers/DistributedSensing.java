@@ -21,9 +21,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Grid;
-import org.apache.commons.lang3.ArrayUtils;
+import it.units.erallab.hmsrobots.util.IntGrid;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -43,7 +44,10 @@ public class DistributedSensing extends AbstractController implements Snapshotta
   @JsonProperty
   private final Grid<TimedRealFunction> functions;
   private final Grid<double[]> currentSignalsGrid;
-  private final Grid<Double> controlSignalsGrid;
+  private final DoubleGrid controlSignalsGrid;
+  private final Grid<double[]> inputsGrid;
+  private final IntGrid inputCounts;
+  private final IntGrid outputCounts;
 
   @JsonCreator
   public DistributedSensing(
@@ -58,7 +62,10 @@ public class DistributedSensing extends AbstractController implements Snapshotta
     this.functions = functions;
     lastSignalsGrid = Grid.create(functions, f -> new double[signals * Dir.values().length]);
     currentSignalsGrid = Grid.create(functions, f -> new double[signals * Dir.values().length]);
-    controlSignalsGrid = Grid.create(functions, f -> 0d);
+    controlSignalsGrid = new DoubleGrid(functions.getW(), functions.getH());
+    inputsGrid = Grid.create(nOfInputGrid, n -> new double[n]);
+    inputCounts = IntGrid.from(nOfInputGrid);
+    outputCounts = IntGrid.from(nOfOutputGrid);
     reset();
   }
 
@@ -149,29 +156,47 @@ public class DistributedSensing extends AbstractController implements Snapshotta
 
   @Override
   public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    for (Grid.Entry<Voxel> entry : voxels) {
-      if (entry.value() == null) {
+    updateControlSignals(t, voxels);
+    return controlSignalsGrid.toGrid();
+  }
+
+  @Override
+  public void computeControlSignals(double t, Grid<Voxel> voxels, DoubleGrid controlSignals) {
+    updateControlSignals(t, voxels);
+    controlSignals.copyFrom(controlSignalsGrid);
+  }
+
+  private void updateControlSignals(double t, Grid<Voxel> voxels) {
+    int nOfSignals = signals * Dir.values().length;
+    for (int i = 0; i < controlSignalsGrid.size(); i++) {
+      int x = controlSignalsGrid.x(i);
+      int y = controlSignalsGrid.y(i);
+      Voxel voxel = voxels.get(x, y);
+      if (voxel == null) {
         continue;
       }
       //get inputs
-      double[] signals = getLastSignals(entry.key().x(), entry.key().y());
-      double[] inputs = ArrayUtils.addAll(entry.value().getSensorReadings(), signals);
+      int nOfReadings = voxel.nOfSensorReadings();
+      double[] inputs = inputsGrid.get(x, y);
+      if (inputs.length != nOfReadings + nOfSignals) {
+        inputs = new double[nOfReadings + nOfSignals];
+        inputsGrid.set(x, y, inputs);
+      }
+      System.arraycopy(voxel.getSensorReadingsBuffer(), voxel.getSensorReadingsOffset(), inputs, 0, nOfReadings);
+      getLastSignals(x, y, inputs, nOfReadings);
       //compute outputs
-      TimedRealFunction function = functions.get(entry.key().x(), entry.key().y());
-      double[] outputs = function != null ? function.apply(t, inputs) : new double[nOfOutputs(
-          entry.key().x(),
-          entry.key().y()
-      )];
+      TimedRealFunction function = functions.get(x, y);
+      double[] outputs = function != null ? function.apply(t, inputs) : new double[nOfOutputs(x, y)];
       //save outputs
-      controlSignalsGrid.set(entry.key().x(), entry.key().y(), outputs[0]);
-      System.arraycopy(outputs, 1, currentSignalsGrid.get(entry.key().x(), entry.key().y()), 0, outputs.length - 1);
+      controlSignalsGrid.set(i, outputs[0]);
+      System.arraycopy(outputs, 1, currentSignalsGrid.get(x, y), 0, outputs.length - 1);
     }
-    for (Grid.Entry<Voxel> entry : voxels) {
-      if (entry.value() == null) {
+    for (int i = 0; i < controlSignalsGrid.size(); i++) {
+      int x = controlSignalsGrid.x(i);
+      int y = controlSignalsGrid.y(i);
+      if (voxels.get(x, y) == null) {
         continue;
       }
-      int x = entry.key().x();
-      int y = entry.key().y();
       System.arraycopy(
           currentSignalsGrid.get(x, y),
           0,
@@ -180,7 +205,6 @@ public class DistributedSensing extends AbstractController implements Snapshotta
           currentSignalsGrid.get(x, y).length
       );
     }
-    return Grid.copy(controlSignalsGrid);
   }
 
   public Grid<TimedRealFunction> getFunctions() {
@@ -189,10 +213,16 @@ public class DistributedSensing extends AbstractController implements Snapshotta
 
   protected double[] getLastSignals(int x, int y) {
     double[] values = new double[signals * Dir.values().length];
+    getLastSignals(x, y, values, 0);
+    return values;
+  }
+
+  //writes the signals coming from the adjacent voxels in values, starting from offset
+  protected void getLastSignals(int x, int y, double[] values, int offset) {
     if (signals <= 0) {
-      return values;
+      return;
     }
-    int c = 0;
+    int c = offset;
     for (Dir dir : Dir.values()) {
       int adjacentX = x + dir.dx;
       int adjacentY = y + dir.dy;
@@ -200,18 +230,19 @@ public class DistributedSensing extends AbstractController implements Snapshotta
       if (lastSignals != null) {
         int index = Dir.adjacent(dir).index;
         System.arraycopy(lastSignals, index * signals, values, c, signals);
+      } else {
+        Arrays.fill(values, c, c + signals, 0d);
       }
       c = c + signals;
     }
-    return values;
   }
 
   public int nOfInputs(int x, int y) {
-    return nOfInputGrid.get(x, y);
+    return inputCounts.get(x, y);
   }
 
   public int nOfOutputs(int x, int y) {
-    return nOfOutputGrid.get(x, y);
+    return outputCounts.get(x, y);
   }
 
   @Override
@@ -219,7 +250,7 @@ public class DistributedSensing extends AbstractController implements Snapshotta
     return new Snapshot(
         new DistributedSensingState(
             Grid.create(nOfInputGrid, i -> i > 0),
-            Grid.copy(controlSignalsGrid),
+            controlSignalsGrid.toGrid(),
             Grid.create(lastSignalsGrid, a -> Arrays.copyOf(a, a.length)),
             DoubleRange.of(-1d, 1d)
         ),
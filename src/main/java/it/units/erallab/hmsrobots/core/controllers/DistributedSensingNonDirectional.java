@@ -21,6 +21,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.util.Grid;
 
+import java.util.Arrays;
+
 /**
  * @author giorgia
  */
@@ -59,22 +61,22 @@ public class DistributedSensingNonDirectional extends DistributedSensing {
   }
 
   @Override
-  protected double[] getLastSignals(int x, int y) {
-    double[] values = new double[signals * Dir.values().length];
+  protected void getLastSignals(int x, int y, double[] values, int offset) {
     if (signals <= 0) {
-      return values;
+      return;
     }
-    int c = 0;
+    int c = offset;
     for (Dir dir : Dir.values()) {
       int adjacentX = x + dir.dx;
       int adjacentY = y + dir.dy;
       double[] lastSignals = lastSignalsGrid.get(adjacentX, adjacentY);
       if (lastSignals != null) {
         System.arraycopy(lastSignals, 0, values, c, signals);
+      } else {
+        Arrays.fill(values, c, c + signals, 0d);
       }
       c = c + signals;
     }
-    return values;
   }
 
   @Override
@@ -27,6 +27,7 @@ import it.units.erallab.hmsrobots.util.Parametrized;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -94,16 +95,20 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
     SIGN(Math::signum, DoubleRange.of(-1d, 1d)),
     IDENTITY(x -> x, DoubleRange.of(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
 
-    private final Function<Double, Double> f;
+    private final DoubleUnaryOperator f;
     private final DoubleRange domain;
 
-    ActivationFunction(Function<Double, Double> f, DoubleRange domain) {
+    ActivationFunction(DoubleUnaryOperator f, DoubleRange domain) {
       this.f = f;
       this.domain = domain;
     }
 
     public Double apply(Double x) {
-      return f.apply(x);
+      return f.applyAsDouble(x);
+    }
+
+    public double applyAsDouble(double x) {
+      return f.applyAsDouble(x);
     }
 
     public DoubleRange getDomain() {
@@ -111,7 +116,7 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
     }
 
     public Function<Double, Double> getF() {
-      return f;
+      return f::applyAsDouble;
     }
   }
 
@@ -174,7 +179,7 @@ public class MultiLayerPerceptron implements Serializable, RealFunction, Paramet
           input.length
       ));
     }
-    activationValues[0] = Arrays.stream(input).map(activationFunction.f::apply).toArray();
+    activationValues[0] = Arrays.stream(input).map(activationFunction.f).toArray();
     for (int i = 1; i < neurons.length; i++) {
       activationValues[i] = new double[neurons[i]];
       for (int j = 0; j < neurons[i]; j++) {
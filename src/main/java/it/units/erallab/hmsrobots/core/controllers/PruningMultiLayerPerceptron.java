@@ -36,9 +36,10 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
   private boolean pruned;
   private long counter;
   private double[][][] prunedWeights;
-  private double[][][] means;
-  private double[][][] absMeans;
-  private double[][][] meanDiffSquareSums; //https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Weighted_incremental_algorithm
+  //statistics are indexed as the flat weights, see MultiLayerPerceptron.flat()
+  private double[] means;
+  private double[] absMeans;
+  private double[] meanDiffSquareSums; //https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Weighted_incremental_algorithm
 
   public PruningMultiLayerPerceptron(
       @JsonProperty("activationFunction") ActivationFunction activationFunction,
@@ -104,11 +105,9 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
     RANDOM
   }
 
-  private record PruningPair(int[] indexes, double value) {}
-
   @Override
   public double[] apply(double t, double[] input) {
-    if (t >= pruningTime) {
+    if (!pruned && t >= pruningTime) {
       prune();
     }
     if (input.length != neurons[0]) {
@@ -118,81 +117,146 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
           input.length
       ));
     }
+    boolean collecting = !pruned && isCollectingStatistics();
     activationValues[0] = Arrays.stream(input).map(activationFunction::apply).toArray();
+    int c = 0;
     for (int i = 1; i < neurons.length; i++) {
       activationValues[i] = new double[neurons[i]];
       for (int j = 0; j < neurons[i]; j++) {
-        double sum = prunedWeights[i - 1][j][0]; //set the bias
-        for (int k = 1; k < neurons[i - 1] + 1; k++) {
-          double signal = activationValues[i - 1][k - 1] * prunedWeights[i - 1][j][k];
-          sum = sum + signal;
-          double delta = signal - means[i - 1][j][k];
-          means[i - 1][j][k] = means[i - 1][j][k] + delta / ((double) counter + 1d);
-          absMeans[i - 1][j][k] = absMeans[i - 1][j][k] + (Math.abs(signal) - absMeans[i - 1][j][k]) / ((double) counter + 1d);
-          meanDiffSquareSums[i - 1][j][k] = meanDiffSquareSums[i - 1][j][k] + delta * (signal - means[i - 1][j][k]);
+        double[] localWeights = prunedWeights[i - 1][j];
+        double sum = localWeights[0]; //set the bias
+        if (collecting) {
+          for (int k = 1; k < neurons[i - 1] + 1; k++) {
+            double signal = activationValues[i - 1][k - 1] * localWeights[k];
+            sum = sum + signal;
+            double delta = signal - means[c + k];
+            means[c + k] = means[c + k] + delta / ((double) counter + 1d);
+            absMeans[c + k] = absMeans[c + k] + (Math.abs(signal) - absMeans[c + k]) / ((double) counter + 1d);
+            meanDiffSquareSums[c + k] = meanDiffSquareSums[c + k] + delta * (signal - means[c + k]);
+          }
+        } else {
+          for (int k = 1; k < neurons[i - 1] + 1; k++) {
+            sum = sum + activationValues[i - 1][k - 1] * localWeights[k];
+          }
         }
+        c = c + neurons[i - 1] + 1;
         activationValues[i][j] = activationFunction.apply(sum);
       }
     }
-    counter = counter + 1;
+    if (collecting) {
+      counter = counter + 1;
+    }
     return activationValues[neurons.length - 1];
   }
 
-  private void prune(List<PruningPair> localPairs) {
-    localPairs.sort(Comparator.comparing(PruningPair::value));
-    localPairs.subList(0, (int) Math.round(localPairs.size() * rate)).forEach(p -> prune(p.indexes()));
-  }
-
-  private void prune(int[] is) {
-    int i = is[0];
-    int j = is[1];
-    int k = is[2];
-    prunedWeights[i - 1][j][k] = 0d;
-    if (criterion.equals(Criterion.SIGNAL_VARIANCE) && k != 0) {
-      prunedWeights[i - 1][j][0] = prunedWeights[i - 1][j][0] + prunedWeights[i - 1][j][k];
-    }
+  private boolean isCollectingStatistics() {
+    return switch (criterion) {
+      case SIGNAL_MEAN, ABS_SIGNAL_MEAN, SIGNAL_VARIANCE -> true;
+      case WEIGHT, RANDOM -> false;
+    };
   }
 
   private void prune() {
     pruned = true;
-    List<PruningPair> pairs = new ArrayList<>();
-    RandomGenerator random = new Random((long) (10000 * weights[0][0][0])); // TODO to improve, should be passed to constructor
-    for (int i = 1; i < neurons.length; i++) {
-      for (int j = 0; j < neurons[i]; j++) {
-        for (int k = 0; k < neurons[i - 1] + 1; k++) {
-          pairs.add(new PruningPair(
-              new int[]{i, j, k},
-              switch (criterion) {
-                case WEIGHT -> Math.abs(prunedWeights[i - 1][j][k]);
-                case SIGNAL_MEAN -> means[i - 1][j][k];
-                case ABS_SIGNAL_MEAN -> absMeans[i - 1][j][k];
-                case SIGNAL_VARIANCE -> meanDiffSquareSums[i - 1][j][k];
-                case RANDOM -> random.nextDouble();
-              }
-          ));
+    double[] values = switch (criterion) {
+      case WEIGHT -> Arrays.stream(MultiLayerPerceptron.flat(prunedWeights, neurons)).map(Math::abs).toArray();
+      case SIGNAL_MEAN -> means;
+      case ABS_SIGNAL_MEAN -> absMeans;
+      case SIGNAL_VARIANCE -> meanDiffSquareSums;
+      case RANDOM -> {
+        RandomGenerator random = new Random((long) (10000 * weights[0][0][0])); // TODO to improve, should be passed to constructor
+        double[] randomValues = new double[countWeights(neurons)];
+        for (int c = 0; c < randomValues.length; c++) {
+          randomValues[c] = random.nextDouble();
         }
+        yield randomValues;
       }
+    };
+    int[] indexes = new int[values.length];
+    for (int c = 0; c < indexes.length; c++) {
+      indexes[c] = c;
     }
     if (context.equals(Context.NETWORK)) {
-      prune(pairs);
+      prune(indexes, 0, indexes.length, values);
     } else if (context.equals(Context.LAYER)) {
+      int from = 0;
       for (int i = 1; i < neurons.length; i++) {
-        final int localI = i;
-        prune(pairs.stream().filter(p -> p.indexes()[0] == localI).toList());
+        int to = from + neurons[i] * (neurons[i - 1] + 1);
+        prune(indexes, from, to, values);
+        from = to;
       }
     } else if (context.equals(Context.NEURON)) {
+      int from = 0;
       for (int i = 1; i < neurons.length; i++) {
         for (int j = 0; j < neurons[i]; j++) {
-          final int localI = i;
-          final int localJ = j;
-          prune(pairs.stream()
-              .filter(p -> p.indexes()[0] == localI && p.indexes()[1] == localJ)
-              .toList());
+          int to = from + neurons[i - 1] + 1;
+          prune(indexes, from, to, values);
+          from = to;
+        }
+      }
+    }
+  }
+
+  //prunes the round(rate*n) weights with the lowest values in the [from,to) range, ties broken by position
+  private void prune(int[] indexes, int from, int to, double[] values) {
+    int n = (int) Math.round((to - from) * rate);
+    if (n == 0) {
+      return;
+    }
+    if (n < to - from) {
+      select(indexes, from, to, from + n, values);
+    }
+    for (int c = from; c < from + n; c++) {
+      prune(indexes[c]);
+    }
+  }
+
+  private void prune(int c) {
+    for (int i = 1; i < neurons.length; i++) {
+      int layerSize = neurons[i] * (neurons[i - 1] + 1);
+      if (c < layerSize) {
+        prunedWeights[i - 1][c / (neurons[i - 1] + 1)][c % (neurons[i - 1] + 1)] = 0d;
+        return;
+      }
+      c = c - layerSize;
+    }
+  }
+
+  private static int compare(int[] indexes, int c1, int c2, double[] values) {
+    int outcome = Double.compare(values[indexes[c1]], values[indexes[c2]]);
+    return outcome != 0 ? outcome : Integer.compare(indexes[c1], indexes[c2]);
+  }
+
+  //quickselect: rearranges indexes in [from,to) such that the ones in [from,nth) are the lowest ones
+  private static void select(int[] indexes, int from, int to, int nth, double[] values) {
+    int lo = from;
+    int hi = to - 1;
+    while (lo < hi) {
+      swap(indexes, (lo + hi) >>> 1, hi);
+      int store = lo;
+      for (int c = lo; c < hi; c++) {
+        if (compare(indexes, c, hi, values) < 0) {
+          swap(indexes, c, store);
+          store = store + 1;
         }
       }
+      swap(indexes, store, hi);
+      if (store == nth) {
+        return;
+      } else if (store < nth) {
+        lo = store + 1;
+      } else {
+        hi = store - 1;
+      }
     }
   }
 
+  private static void swap(int[] indexes, int c1, int c2) {
+    int index = indexes[c1];
+    indexes[c1] = indexes[c2];
+    indexes[c2] = index;
+  }
+
   @Override
   public void reset() {
     if (rate < 0 || rate > 1) {
@@ -200,27 +264,16 @@ public class PruningMultiLayerPerceptron extends MultiLayerPerceptron implements
     }
     pruned = false;
     counter = 0;
-    means = new double[weights.length][][];
-    absMeans = new double[weights.length][][];
-    meanDiffSquareSums = new double[weights.length][][];
     prunedWeights = new double[weights.length][][];
     for (int i = 1; i < neurons.length; i++) {
-      means[i - 1] = new double[weights[i - 1].length][];
-      absMeans[i - 1] = new double[weights[i - 1].length][];
-      meanDiffSquareSums[i - 1] = new double[weights[i - 1].length][];
       prunedWeights[i - 1] = new double[weights[i - 1].length][];
       for (int j = 0; j < weights[i - 1].length; j++) {
-        means[i - 1][j] = new double[weights[i - 1][j].length];
-        absMeans[i - 1][j] = new double[weights[i - 1][j].length];
-        meanDiffSquareSums[i - 1][j] = new double[weights[i - 1][j].length];
-        prunedWeights[i - 1][j] = new double[weights[i - 1][j].length];
-        for (int k = 0; k < weights[i - 1][j].length; k++) {
-          means[i - 1][j][k] = weights[i - 1][j][k];
-          absMeans[i - 1][j][k] = Math.abs(weights[i - 1][j][k]);
-          prunedWeights[i - 1][j][k] = weights[i - 1][j][k];
-        }
+        prunedWeights[i - 1][j] = Arrays.copyOf(weights[i - 1][j], weights[i - 1][j].length);
       }
     }
+    means = MultiLayerPerceptron.flat(weights, neurons);
+    absMeans = Arrays.stream(means).map(Math::abs).toArray();
+    meanDiffSquareSums = new double[means.length];
   }
 
   @Override
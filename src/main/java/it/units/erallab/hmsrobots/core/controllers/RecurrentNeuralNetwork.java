@@ -22,12 +22,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.util.Parametrized;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron.ActivationFunction;
 
@@ -46,6 +43,7 @@ public class RecurrentNeuralNetwork implements Serializable, RealFunction, Param
   @JsonProperty
   private final double[][] biases;
   private final double[][] activationValues;
+  private double[] nextHiddenValues;
 
   @JsonCreator
   public RecurrentNeuralNetwork(
@@ -64,40 +62,43 @@ public class RecurrentNeuralNetwork implements Serializable, RealFunction, Param
       ));
     }
     this.neurons = neurons;
-    if (flat(inputWeights).length != neurons[0] * neurons[1]) {
+    if (count(inputWeights) != neurons[0] * neurons[1]) {
       throw new IllegalArgumentException(String.format(
           "Wrong number of input weights: %d expected, %d found",
           neurons[0] * neurons[1],
-          flat(inputWeights).length
+          count(inputWeights)
       ));
     }
     this.inputWeights = inputWeights;
-    if (flat(recurrentWeights).length != neurons[1] * neurons[1]) {
+    if (count(recurrentWeights) != neurons[1] * neurons[1]) {
       throw new IllegalArgumentException(String.format(
           "Wrong number of recurrent weights: %d expected, %d found",
           neurons[1] * neurons[1],
-          flat(recurrentWeights).length
+          count(recurrentWeights)
       ));
     }
     this.recurrentWeights = recurrentWeights;
-    if (flat(outputWeights).length != neurons[1] * neurons[2]) {
+    if (count(outputWeights) != neurons[1] * neurons[2]) {
       throw new IllegalArgumentException(String.format(
           "Wrong number of output weights: %d expected, %d found",
           neurons[1] * neurons[2],
-          flat(outputWeights).length
+          count(outputWeights)
       ));
     }
     this.outputWeights = outputWeights;
-    if (flat(biases).length != neurons[1] + neurons[2]) {
+    if (count(biases) != neurons[1] + neurons[2]) {
       throw new IllegalArgumentException(String.format(
           "Wrong number of biases: %d expected, %d found",
           neurons[1] + neurons[2],
-          flat(biases).length
+          count(biases)
       ));
     }
     this.biases = biases;
     activationValues = new double[3][];
-    IntStream.range(0, neurons.length).forEach(i -> activationValues[i] = new double[neurons[i]]);
+    for (int i = 0; i < neurons.length; i++) {
+      activationValues[i] = new double[neurons[i]];
+    }
+    nextHiddenValues = new double[neurons[1]];
   }
 
   public RecurrentNeuralNetwork(ActivationFunction activationFunction, int[] neurons, double[] weights) {
@@ -117,48 +118,41 @@ public class RecurrentNeuralNetwork implements Serializable, RealFunction, Param
 
   @Override
   public double[] getParams() {
-    double[] flatInputWeights = flat(inputWeights);
-    double[] flatRecurrentWeights = flat(recurrentWeights);
-    double[] flatOutputWeights = flat(outputWeights);
-    double[] flatBiases = flat(biases);
-
-    double[] flatWeights = new double[flatInputWeights.length + flatRecurrentWeights.length + flatOutputWeights.length + flatBiases.length];
-    System.arraycopy(flatInputWeights, 0, flatWeights, 0, flatInputWeights.length);
-    System.arraycopy(flatRecurrentWeights, 0, flatWeights, flatInputWeights.length, flatRecurrentWeights.length);
-    System.arraycopy(flatOutputWeights, 0, flatWeights, flatInputWeights.length + flatRecurrentWeights.length, flatOutputWeights.length);
-    System.arraycopy(flatBiases, 0, flatWeights, flatInputWeights.length + flatRecurrentWeights.length + flatOutputWeights.length, flatBiases.length);
-
-    return flatWeights;
+    double[] params = new double[countWeights(neurons)];
+    int c = 0;
+    for (double[][] weights : new double[][][]{inputWeights, recurrentWeights, outputWeights, biases}) {
+      for (double[] row : weights) {
+        System.arraycopy(row, 0, params, c, row.length);
+        c = c + row.length;
+      }
+    }
+    return params;
   }
 
   @Override
   public void setParams(double[] params) {
-    double[][] inputWeights = unflat(Arrays.copyOfRange(params, 0, neurons[0] * neurons[1]), neurons[0], neurons[1]);
-    double[][] recurrentWeights = unflat(Arrays.copyOfRange(params, neurons[0] * neurons[1], neurons[0] * neurons[1] + neurons[1] * neurons[1]), neurons[1], neurons[1]);
-    double[][] outputWeights = unflat(Arrays.copyOfRange(params, neurons[0] * neurons[1] + neurons[1] * neurons[1], neurons[0] * neurons[1] + neurons[1] * neurons[1] + neurons[1] * neurons[2]), neurons[1], neurons[2]);
-    double[][] biases = unflatBiases(Arrays.copyOfRange(params, neurons[0] * neurons[1] + neurons[1] * neurons[1] + neurons[1] * neurons[2], params.length), neurons);
-
-    for (int i = 0; i < inputWeights.length; i++) {
-      System.arraycopy(inputWeights[i], 0, this.inputWeights[i], 0, inputWeights[i].length);
-    }
-    for (int i = 0; i < recurrentWeights.length; i++) {
-      System.arraycopy(recurrentWeights[i], 0, this.recurrentWeights[i], 0, recurrentWeights[i].length);
-    }
-    for (int i = 0; i < outputWeights.length; i++) {
-      System.arraycopy(outputWeights[i], 0, this.outputWeights[i], 0, outputWeights[i].length);
+    if (params.length != countWeights(neurons)) {
+      throw new IllegalArgumentException(String.format(
+          "Wrong number of params: %d expected, %d found",
+          countWeights(neurons),
+          params.length
+      ));
     }
-    for (int i = 0; i < biases.length; i++) {
-      System.arraycopy(biases[i], 0, this.biases[i], 0, biases[i].length);
+    int c = 0;
+    for (double[][] weights : new double[][][]{inputWeights, recurrentWeights, outputWeights, biases}) {
+      for (double[] row : weights) {
+        System.arraycopy(params, c, row, 0, row.length);
+        c = c + row.length;
+      }
     }
-
   }
 
-  private static double[] flat(double[][] weights) {
-    List<Double> flatWeights = new ArrayList<>();
-    for (double[] weight : weights) {
-      flatWeights.addAll(Arrays.stream(weight).boxed().toList());
+  private static int count(double[][] weights) {
+    int c = 0;
+    for (double[] row : weights) {
+      c = c + row.length;
     }
-    return flatWeights.stream().mapToDouble(i -> i).toArray();
+    return c;
   }
 
   private static double[][] unflatBiases(double[] flatBiases, int[] neurons) {
@@ -190,29 +184,62 @@ public class RecurrentNeuralNetwork implements Serializable, RealFunction, Param
 
   @Override
   public void reset() {
-    IntStream.range(0, activationValues.length).forEach(i -> activationValues[i] = new double[activationValues[i].length]);
+    for (double[] values : activationValues) {
+      Arrays.fill(values, 0d);
+    }
   }
 
+  //weights are visited row by row, i.e., along contiguous memory
   @Override
   public double[] apply(double[] input) {
-    activationValues[0] = Arrays.stream(input).map(activationFunction::apply).toArray();
-    double[] recurrentOutputs = IntStream.range(0, neurons[1]).mapToDouble(h -> {
-      double inputs = IntStream.range(0, neurons[0]).mapToDouble(i ->
-          activationValues[0][i] * inputWeights[i][h]
-      ).sum();
-      double recurrent = IntStream.range(0, neurons[1]).mapToDouble(h1 ->
-          activationValues[1][h1] * recurrentWeights[h1][h]
-      ).sum();
-      return activationFunction.apply(inputs + recurrent + biases[0][h]);
-    }).toArray();
-    activationValues[1] = recurrentOutputs;
-    activationValues[2] = IntStream.range(0, neurons[2]).mapToDouble(o ->
-        activationFunction.apply(
-            biases[1][o] +
-                IntStream.range(0, neurons[1]).mapToDouble(h -> activationValues[1][h] * outputWeights[h][o]).sum()
-        )
-    ).toArray();
-    return activationValues[2];
+    if (input.length != neurons[0]) {
+      throw new IllegalArgumentException(String.format(
+          "Expected input length is %d: found %d",
+          neurons[0],
+          input.length
+      ));
+    }
+    double[] inputValues = activationValues[0];
+    double[] hiddenValues = activationValues[1];
+    double[] outputValues = activationValues[2];
+    for (int i = 0; i < neurons[0]; i++) {
+      inputValues[i] = activationFunction.applyAsDouble(input[i]);
+    }
+    System.arraycopy(biases[0], 0, nextHiddenValues, 0, neurons[1]);
+    for (int i = 0; i < neurons[0]; i++) {
+      double v = inputValues[i];
+      double[] row = inputWeights[i];
+      for (int h = 0; h < neurons[1]; h++) {
+        nextHiddenValues[h] = nextHiddenValues[h] + v * row[h];
+      }
+    }
+    for (int h1 = 0; h1 < neurons[1]; h1++) {
+      double v = hiddenValues[h1];
+      double[] row = recurrentWeights[h1];
+      for (int h = 0; h < neurons[1]; h++) {
+        nextHiddenValues[h] = nextHiddenValues[h] + v * row[h];
+      }
+    }
+    for (int h = 0; h < neurons[1]; h++) {
+      nextHiddenValues[h] = activationFunction.applyAsDouble(nextHiddenValues[h]);
+    }
+    //swap the hidden buffers
+    activationValues[1] = nextHiddenValues;
+    nextHiddenValues = hiddenValues;
+    hiddenValues = activationValues[1];
+    System.arraycopy(biases[1], 0, outputValues, 0, neurons[2]);
+    for (int h = 0; h < neurons[1]; h++) {
+      double v = hiddenValues[h];
+      double[] row = outputWeights[h];
+      for (int o = 0; o < neurons[2]; o++) {
+        outputValues[o] = outputValues[o] + v * row[o];
+      }
+    }
+    for (int o = 0; o < neurons[2]; o++) {
+      outputValues[o] = activationFunction.applyAsDouble(outputValues[o]);
+    }
+    //the output buffer is overwritten at the next step, hence callers get a copy of it
+    return Arrays.copyOf(outputValues, outputValues.length);
   }
 
   @Override
@@ -7,7 +7,6 @@ import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Parametrized;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -32,10 +31,12 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
   @JsonProperty
   private final double[] kbias;
 
-  private final double[][] attention;
-  private final double[][] latentCode;
-  private final double[][] q;
-  private final double[][] k;
+  //row-major buffers, allocated once
+  private final double[] q;
+  private final double[] k;
+  private final double[] attention;
+  private final double[] latentCode;
+  private final double scale;
 
   @JsonCreator
   public SelfAttention(@JsonProperty("dowstream") MultiLayerPerceptron downstream,
@@ -54,14 +55,15 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
     this.wk = wk;
     this.qbias = qbias;
     this.kbias = kbias;
-    this.attention = new double[din][din];
-    this.latentCode = new double[din][n];
-    this.q = new double[din][dk];
-    this.k = new double[din][dk];
+    this.q = new double[din * dk];
+    this.k = new double[din * dk];
+    this.attention = new double[din * din];
+    this.latentCode = new double[din * n];
+    this.scale = Math.sqrt(dk);
   }
 
   public SelfAttention(MultiLayerPerceptron downstream, int n, int din, int dk) {
-    this(downstream, n, din, dk, new double[1][dk], new double[1][dk], new double[dk], new double[dk]);
+    this(downstream, n, din, dk, new double[din][dk], new double[din][dk], new double[dk], new double[dk]);
   }
 
   public static int countAttentionParams(int din, int dk) {
@@ -70,15 +72,43 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
 
   public int countAttentionParams() { return countAttentionParams(this.din, this.dk); }
 
-  public double[] getAttentionParams() { return concat(flat(this.wq), flat(this.wk), this.qbias, this.kbias); }
+  public double[] getAttentionParams() {
+    double[] params = new double[countAttentionParams()];
+    getAttentionParams(params, 0);
+    return params;
+  }
+
+  private int getAttentionParams(double[] params, int s) {
+    for (double[] row : this.wq) {
+      System.arraycopy(row, 0, params, s, row.length);
+      s = s + row.length;
+    }
+    for (double[] row : this.wk) {
+      System.arraycopy(row, 0, params, s, row.length);
+      s = s + row.length;
+    }
+    System.arraycopy(this.qbias, 0, params, s, this.dk);
+    s = s + this.dk;
+    System.arraycopy(this.kbias, 0, params, s, this.dk);
+    return s + this.dk;
+  }
 
   public double[] getDownstreamParams() { return this.downstream.getParams(); }
 
   @Override
-  public double[] getParams() { return concat(this.getAttentionParams(), this.getDownstreamParams()); }
+  public double[] getParams() {
+    double[] downstreamParams = this.getDownstreamParams();
+    double[] params = new double[countAttentionParams() + downstreamParams.length];
+    int s = getAttentionParams(params, 0);
+    System.arraycopy(downstreamParams, 0, params, s, downstreamParams.length);
+    return params;
+  }
 
   public void setAttentionParams(double[] params) {
-    int s = 0;
+    setAttentionParams(params, 0);
+  }
+
+  private void setAttentionParams(double[] params, int s) {
     for (double[] row : this.wq) {
       System.arraycopy(params, s, row, 0, this.dk);
       s = s + this.dk;
@@ -96,33 +126,86 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
 
   @Override
   public void setParams(double[] params) {
-    this.setAttentionParams(Arrays.stream(params).limit(countAttentionParams(this.din, this.dk)).toArray());
-    this.setDownstreamParams(Arrays.stream(params).skip(countAttentionParams(this.din, this.dk)).toArray());
+    int nOfAttentionParams = countAttentionParams(this.din, this.dk);
+    this.setAttentionParams(params, 0);
+    this.setDownstreamParams(Arrays.copyOfRange(params, nOfAttentionParams, params.length));
   }
 
   public static double[] concat(double[]... arrays) {
-    double[] values = new double[]{};
+    int length = 0;
+    for (double[] a : arrays) {
+      length = length + a.length;
+    }
+    double[] values = new double[length];
+    int s = 0;
     for (double[] a : arrays) {
-      values = ArrayUtils.addAll(values, a);
+      System.arraycopy(a, 0, values, s, a.length);
+      s = s + a.length;
     }
     return values;
   }
 
   @Override
   public double[] apply(double[] inputs) {
-    return this.downstream.apply(flat(this.applyAttention(inputs)));
+    return this.downstream.apply(this.computeLatentCode(inputs));
   }
 
   public double[][] applyAttention(double[] inputs) {
-    double[][] reshaped = reshapeVector(inputs, this.n, this.din);
-    linearTransform(reshaped, this.wq, this.qbias, this.q);
-    double[][] keys = matrixTranspose(linearTransform(reshaped, this.wk, this.kbias, this.k));
-    matrixMult(this.q, keys, this.attention);
-    matrixDiv(this.attention, Math.sqrt(this.dk));
-    for (double[] row : this.attention) {
-      tanh(row);
-    }
-    matrixMult(this.attention, matrixTranspose(reshaped), this.latentCode);
+    return reshapeVector(this.computeLatentCode(inputs), this.din, this.n);
+  }
+
+  //inputs are read as a row-major (n,din) matrix x; the result is tanh(q*k'/sqrt(dk))*x' as a row-major (din,n) matrix
+  private double[] computeLatentCode(double[] inputs) {
+    if (inputs.length != this.n * this.din) {
+      throw new IllegalArgumentException(String.format(
+          "Cannot reshape vector of size %d into (%d,%d)",
+          inputs.length,
+          this.n,
+          this.din
+      ));
+    }
+    //queries and keys, rows beyond n only hold the biases
+    for (int i = 0; i < this.din; ++i) {
+      for (int j = 0; j < this.dk; ++j) {
+        double qSum = 0.0;
+        double kSum = 0.0;
+        if (i < this.n) {
+          int xOffset = i * this.din;
+          for (int r = 0; r < this.wq.length; ++r) {
+            qSum += inputs[xOffset + r] * this.wq[r][j];
+          }
+          for (int r = 0; r < this.wk.length; ++r) {
+            kSum += inputs[xOffset + r] * this.wk[r][j];
+          }
+        }
+        this.q[i * this.dk + j] = qSum + this.qbias[j];
+        this.k[i * this.dk + j] = kSum + this.kbias[j];
+      }
+    }
+    //attention
+    for (int i = 0; i < this.din; ++i) {
+      int qOffset = i * this.dk;
+      for (int j = 0; j < this.din; ++j) {
+        int kOffset = j * this.dk;
+        double sum = 0.0;
+        for (int c = 0; c < this.dk; ++c) {
+          sum += this.q[qOffset + c] * this.k[kOffset + c];
+        }
+        this.attention[i * this.din + j] = Math.tanh(sum / this.scale);
+      }
+    }
+    //latent code
+    for (int i = 0; i < this.din; ++i) {
+      int aOffset = i * this.din;
+      for (int j = 0; j < this.n; ++j) {
+        int xOffset = j * this.din;
+        double sum = 0.0;
+        for (int c = 0; c < this.din; ++c) {
+          sum += this.attention[aOffset + c] * inputs[xOffset + c];
+        }
+        this.latentCode[i * this.n + j] = sum;
+      }
+    }
     return this.latentCode;
   }
 
@@ -213,7 +296,10 @@ public class SelfAttention implements Serializable, Parametrized, RealFunction,
   public Snapshot getSnapshot() {
     double[][][] weights = new double[1][][];
     weights[0] = reshapeVector(this.getAttentionParams(), 1, this.countAttentionParams());
-    return new Snapshot(new MLPState(this.attention, weights, DoubleRange.of(-1d, 1d)), this.getClass());
+    return new Snapshot(
+        new MLPState(reshapeVector(this.attention, this.din, this.din), weights, DoubleRange.of(-1d, 1d)),
+        this.getClass()
+    );
   }
 
 }
\ No newline at end of file
@@ -32,6 +32,21 @@ public class SelfOrganizing implements Controller {
   @JsonProperty
   private final Map<Integer, Neuron> neurons;
 
+  //outgoing edges by source index, built lazily and then kept updated by the methods changing the topology
+  private transient Map<Integer, List<Edge>> outgoingEdges;
+
+  //compiled plan: neurons in evaluation order, with ingoing edges in CSR form (edges of the i-th neuron in [edgeStarts[i],edgeStarts[i+1]))
+  //edges are referenced rather than copied, so that changes of their params take effect with no recompilation
+  private transient Neuron[] planNeurons;
+  private transient MultiLayerPerceptron.ActivationFunction[] planFunctions;
+  private transient int[] planSensors;
+  private transient boolean[] planActuators;
+  private transient int[] edgeStarts;
+  private transient int[] edgeSources;
+  private transient Edge[] planEdges;
+  private transient double[] values;
+  private transient double[] nextValues;
+
   @JsonCreator
   public SelfOrganizing(@JsonProperty("neurons") Map<Integer, Neuron> neurons) {
     this.neurons = new HashMap<>();
@@ -315,8 +330,7 @@ public class SelfOrganizing implements Controller {
     @Override
     public void forward(Grid<Voxel> voxels, SelfOrganizing controller) {
       Voxel voxel = voxels.get(x, y);
-      message = function.apply(voxel.getSensors().stream().flatMapToDouble(x -> Arrays.stream(x.getReadings()))
-          .toArray()[numSensor]);
+      message = function.apply(voxel.getSensorReadingsBuffer()[voxel.getSensorReadingsOffset() + numSensor]);
     }
 
     @Override
@@ -344,6 +358,7 @@ public class SelfOrganizing implements Controller {
     int idx = getFirstAvailableIndex();
     Neuron newNeuron = new ActuatorNeuron(idx, x, y);
     neurons.put(idx, newNeuron);
+    invalidatePlan();
     return newNeuron;
   }
 
@@ -353,12 +368,17 @@ public class SelfOrganizing implements Controller {
     }
     Edge edge = new Edge(source, dest, weight, bias);
     neurons.get(dest).addIngoingEdge(edge);
+    if (outgoingEdges != null) {
+      outgoingEdges.computeIfAbsent(source, i -> new ArrayList<>()).add(edge);
+    }
+    invalidatePlan();
   }
 
   public Neuron addHiddenNeuron(MultiLayerPerceptron.ActivationFunction a, int x, int y) {
     int idx = getFirstAvailableIndex();
     Neuron newNeuron = new HiddenNeuron(idx, x, y, a);
     neurons.put(idx, newNeuron);
+    invalidatePlan();
     return newNeuron;
   }
 
@@ -366,13 +386,80 @@ public class SelfOrganizing implements Controller {
     int idx = getFirstAvailableIndex();
     Neuron newNeuron = new SensingNeuron(idx, x, y, s);
     neurons.put(idx, newNeuron);
+    invalidatePlan();
     return newNeuron;
   }
 
   @Override
   public void control(double t, Grid<Voxel> voxels) {
-    getNeurons().forEach(n -> n.forward(voxels, this));
-    getNeurons().forEach(Neuron::advance);
+    if (planNeurons == null) {
+      compile();
+    }
+    for (int i = 0; i < planNeurons.length; i++) {
+      Neuron neuron = planNeurons[i];
+      if (planSensors[i] >= 0) {
+        Voxel voxel = voxels.get(neuron.x, neuron.y);
+        nextValues[i] = planFunctions[i].applyAsDouble(voxel.getSensorReadingsBuffer()[voxel.getSensorReadingsOffset() + planSensors[i]]);
+        continue;
+      }
+      double sum = 0d;
+      for (int e = edgeStarts[i]; e < edgeStarts[i + 1]; e++) {
+        sum = sum + values[edgeSources[e]] * planEdges[e].weight + planEdges[e].bias;
+      }
+      nextValues[i] = planFunctions[i].applyAsDouble(sum);
+      if (planActuators[i]) {
+        voxels.get(neuron.x, neuron.y).applyForce(nextValues[i]);
+      }
+    }
+    double[] tmp = values;
+    values = nextValues;
+    nextValues = tmp;
+    //keep the neurons state consistent with the plan
+    for (int i = 0; i < planNeurons.length; i++) {
+      planNeurons[i].message = values[i];
+      planNeurons[i].cache = values[i];
+    }
+  }
+
+  private void compile() {
+    int n = neurons.size();
+    planNeurons = neurons.values().toArray(Neuron[]::new);
+    planFunctions = new MultiLayerPerceptron.ActivationFunction[n];
+    planSensors = new int[n];
+    planActuators = new boolean[n];
+    edgeStarts = new int[n + 1];
+    Map<Integer, Integer> positions = new HashMap<>(n);
+    for (int i = 0; i < n; i++) {
+      Neuron neuron = planNeurons[i];
+      positions.put(neuron.getIndex(), i);
+      planFunctions[i] = neuron.getActivation();
+      planSensors[i] = neuron instanceof SensingNeuron sensingNeuron ? sensingNeuron.getNumSensor() : -1;
+      planActuators[i] = neuron.isActuator();
+      edgeStarts[i + 1] = edgeStarts[i] + (neuron.isSensing() ? 0 : neuron.getIngoingEdges().size());
+    }
+    edgeSources = new int[edgeStarts[n]];
+    planEdges = new Edge[edgeStarts[n]];
+    for (int i = 0; i < n; i++) {
+      int e = edgeStarts[i];
+      for (Edge edge : planNeurons[i].isSensing() ? List.<Edge>of() : planNeurons[i].getIngoingEdges()) {
+        Integer position = positions.get(edge.getSource());
+        if (position == null) {
+          throw new IllegalStateException(String.format("Edge from missing neuron: %s", edge));
+        }
+        edgeSources[e] = position;
+        planEdges[e] = edge;
+        e = e + 1;
+      }
+    }
+    values = new double[n];
+    nextValues = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = planNeurons[i].send();
+    }
+  }
+
+  private void invalidatePlan() {
+    planNeurons = null;
   }
 
   public void copyNeuron(Neuron neuron) {
@@ -390,7 +477,11 @@ public class SelfOrganizing implements Controller {
     } else {
       throw new RuntimeException(String.format("Unknown Neuron type: %s", neuron.getClass()));
     }
+    if (neurons.containsKey(idx)) {
+      outgoingEdges = null;
+    }
     neurons.put(idx, newComer);
+    invalidatePlan();
     for (Edge edge : neuron.getIngoingEdges()) {
       addEdge(edge.getSource(), edge.getTarget(), edge.getParams()[0], edge.getParams()[1]);
     }
@@ -424,13 +515,17 @@ public class SelfOrganizing implements Controller {
   }
 
   public List<Edge> getOutgoingEdges(int idx) {
-    List<Edge> out = new ArrayList<>();
-    for (Edge edge : getEdges()) {
-      if (edge.getSource() == idx) {
-        out.add(edge);
+    return new ArrayList<>(getOutgoingEdgesMap().getOrDefault(idx, List.of()));
+  }
+
+  private Map<Integer, List<Edge>> getOutgoingEdgesMap() {
+    if (outgoingEdges == null) {
+      outgoingEdges = new HashMap<>();
+      for (Edge edge : getEdges()) {
+        outgoingEdges.computeIfAbsent(edge.getSource(), i -> new ArrayList<>()).add(edge);
       }
     }
-    return out;
+    return outgoingEdges;
   }
 
   public Grid.Key[] getValidAndDistinctCoordinates() {
@@ -443,20 +538,36 @@ public class SelfOrganizing implements Controller {
 
   public void removeEdge(int source, int target) {
     neurons.get(target).getIngoingEdges().removeIf(e -> e.getSource() == source);
+    if (outgoingEdges != null) {
+      List<Edge> edges = outgoingEdges.get(source);
+      if (edges != null) {
+        edges.removeIf(e -> e.getTarget() == target);
+      }
+    }
+    invalidatePlan();
   }
 
   public void removeNeuron(Neuron neuron) {
-    for (Edge edge : getEdges()) {
-      if (edge.getSource() == neuron.getIndex() || edge.getTarget() == neuron.getIndex()) {
+    int idx = neuron.getIndex();
+    for (Edge edge : getOutgoingEdges(idx)) {
+      removeEdge(edge);
+    }
+    if (neurons.containsKey(idx)) {
+      for (Edge edge : new ArrayList<>(neurons.get(idx).getIngoingEdges())) {
         removeEdge(edge);
       }
     }
-    neurons.remove(neuron.getIndex());
+    getOutgoingEdgesMap().remove(idx);
+    neurons.remove(idx);
+    invalidatePlan();
   }
 
   @Override
   public void reset() {
-    getNeurons().forEach(Neuron::resetState);
+    neurons.values().forEach(Neuron::resetState);
+    //neurons and edges are exposed and might have been changed from outside since the last evaluation
+    outgoingEdges = null;
+    invalidatePlan();
   }
 
   @Override
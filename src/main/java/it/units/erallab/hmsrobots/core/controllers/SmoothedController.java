@@ -20,6 +20,7 @@ package it.units.erallab.hmsrobots.core.controllers;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 public class SmoothedController extends CompositeController {
@@ -28,7 +29,8 @@ public class SmoothedController extends CompositeController {
   private final double controlSignalSpeed;
 
   double lastT = Double.NEGATIVE_INFINITY;
-  Grid<Double> currentControlSignals = null;
+  DoubleGrid currentControlSignals = null;
+  private transient DoubleGrid targetControlSignals;
 
   @JsonCreator
   public SmoothedController(
@@ -41,29 +43,36 @@ public class SmoothedController extends CompositeController {
 
   @Override
   public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    Grid<Double> targetControlSignals = innerController.computeControlSignals(t, voxels);
+    DoubleGrid controlSignals = new DoubleGrid(voxels.getW(), voxels.getH());
+    computeControlSignals(t, voxels, controlSignals);
+    return toGrid(controlSignals, voxels);
+  }
+
+  @Override
+  public void computeControlSignals(double t, Grid<Voxel> voxels, DoubleGrid controlSignals) {
+    if (targetControlSignals == null || targetControlSignals.size() != controlSignals.size()) {
+      targetControlSignals = new DoubleGrid(controlSignals.getW(), controlSignals.getH());
+    }
+    innerController.computeControlSignals(t, voxels, targetControlSignals);
     if (currentControlSignals == null) {
-      currentControlSignals = Grid.create(targetControlSignals, v -> 0d);
+      currentControlSignals = new DoubleGrid(controlSignals.getW(), controlSignals.getH());
       lastT = t;
     }
     double dT = t - lastT;
     double dControlSignal = dT * controlSignalSpeed;
     lastT = t;
-    return Grid.create(targetControlSignals.getW(), targetControlSignals.getH(), (x, y) -> {
-      Double targetControlSignal = targetControlSignals.get(x, y);
-      double currentControlSignal = currentControlSignals.get(x, y);
-      if (targetControlSignal == null) {
-        return 0d;
-      }
+    for (int i = 0; i < controlSignals.size(); i++) {
+      double targetControlSignal = targetControlSignals.get(i);
+      double currentControlSignal = currentControlSignals.get(i);
       if (Math.abs(targetControlSignal - currentControlSignal) <= dControlSignal) {
-        currentControlSignals.set(x, y, targetControlSignal);
+        currentControlSignals.set(i, targetControlSignal);
       } else if (targetControlSignal > currentControlSignal) {
-        currentControlSignals.set(x, y, currentControlSignals.get(x, y) + dControlSignal);
+        currentControlSignals.set(i, currentControlSignal + dControlSignal);
       } else {
-        currentControlSignals.set(x, y, currentControlSignals.get(x, y) - dControlSignal);
+        currentControlSignals.set(i, currentControlSignal - dControlSignal);
       }
-      return currentControlSignals.get(x, y);
-    });
+      controlSignals.set(i, currentControlSignals.get(i));
+    }
   }
 
   @Override
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
+import it.units.erallab.hmsrobots.util.DoubleGrid;
 import it.units.erallab.hmsrobots.util.Grid;
 
 public class StepController extends CompositeController implements Snapshottable {
@@ -31,27 +32,56 @@ public class StepController extends CompositeController implements Snapshottable
 
   @JsonProperty
   private final double stepT;
+  @JsonProperty
+  private final boolean skipSensing;
 
   double lastT = Double.NEGATIVE_INFINITY;
-  Grid<Double> lastControlSignals = null;
+  DoubleGrid lastControlSignals = null;
 
   @JsonCreator
   public StepController(
       @JsonProperty("innerController") AbstractController innerController,
-      @JsonProperty("stepT") double stepT
+      @JsonProperty("stepT") double stepT,
+      @JsonProperty("skipSensing") boolean skipSensing
   ) {
     super(innerController);
     this.stepT = stepT;
+    this.skipSensing = skipSensing;
+  }
+
+  public StepController(AbstractController innerController, double stepT) {
+    this(innerController, stepT, false);
+  }
+
+  private boolean isUpdating(double t) {
+    return t - lastT >= stepT || lastControlSignals == null;
+  }
+
+  @Override
+  public boolean needsSensorReadings(double t) {
+    if (!skipSensing) {
+      return true;
+    }
+    return isUpdating(t) && innerController.needsSensorReadings(t);
   }
 
   @Override
   public Grid<Double> computeControlSignals(double t, Grid<Voxel> voxels) {
-    if (t - lastT >= stepT || lastControlSignals == null) {
-      Grid<Double> controlSignals = innerController.computeControlSignals(t, voxels);
-      lastControlSignals = Grid.create(controlSignals, v -> v);
+    DoubleGrid controlSignals = new DoubleGrid(voxels.getW(), voxels.getH());
+    computeControlSignals(t, voxels, controlSignals);
+    return toGrid(controlSignals, voxels);
+  }
+
+  @Override
+  public void computeControlSignals(double t, Grid<Voxel> voxels, DoubleGrid controlSignals) {
+    if (isUpdating(t)) {
+      if (lastControlSignals == null || lastControlSignals.size() != controlSignals.size()) {
+        lastControlSignals = new DoubleGrid(controlSignals.getW(), controlSignals.getH());
+      }
+      innerController.computeControlSignals(t, voxels, lastControlSignals);
       lastT = t;
     }
-    return lastControlSignals;
+    controlSignals.copyFrom(lastControlSignals);
   }
 
   @Override
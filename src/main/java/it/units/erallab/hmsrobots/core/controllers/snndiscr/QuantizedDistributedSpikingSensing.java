@@ -9,7 +9,6 @@ import it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.vts.Quant
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializationUtils;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.Arrays;
 import java.util.stream.IntStream;
@@ -59,8 +58,10 @@ public class QuantizedDistributedSpikingSensing extends AbstractController {
   private final Grid<QuantizedValueToSpikeTrainConverter[]> inputConverters;
 
   private double previousTime = 0;
-  protected final Grid<int[][]> lastSignalsGrid;
-  private final Grid<int[][]> currentSignalsGrid;
+  protected final Grid<SpikeTrain[]> lastSignalsGrid;
+  private final Grid<SpikeTrain[]> currentSignalsGrid;
+  private final Grid<SpikeTrain[]> inputsGrid;
+  private final Grid<SpikeTrain[]> outputsGrid;
 
   @JsonCreator
   public QuantizedDistributedSpikingSensing(
@@ -77,8 +78,10 @@ public class QuantizedDistributedSpikingSensing extends AbstractController {
     this.functions = functions;
     this.outputConverters = outputConverters;
     this.inputConverters = inputConverters;
-    lastSignalsGrid = Grid.create(functions, f -> new int[signals * Dir.values().length][ARRAY_SIZE]);
-    currentSignalsGrid = Grid.create(functions, f -> new int[signals * Dir.values().length][ARRAY_SIZE]);
+    lastSignalsGrid = Grid.create(functions, f -> SpikeTrain.create(signals * Dir.values().length, ARRAY_SIZE));
+    currentSignalsGrid = Grid.create(functions, f -> SpikeTrain.create(signals * Dir.values().length, ARRAY_SIZE));
+    inputsGrid = Grid.create(inputConverters, c -> (c == null) ? null : SpikeTrain.create(signals * Dir.values().length + c.length, ARRAY_SIZE));
+    outputsGrid = Grid.create(nOfOutputGrid, n -> SpikeTrain.create(n, ARRAY_SIZE));
     reset();
   }
 
@@ -105,8 +108,8 @@ public class QuantizedDistributedSpikingSensing extends AbstractController {
     previousTime = 0;
     for (int x = 0; x < lastSignalsGrid.getW(); x++) {
       for (int y = 0; y < lastSignalsGrid.getH(); y++) {
-        lastSignalsGrid.set(x, y, new int[signals * Dir.values().length][ARRAY_SIZE]);
-        currentSignalsGrid.set(x, y, new int[signals * Dir.values().length][ARRAY_SIZE]);
+        Arrays.stream(lastSignalsGrid.get(x, y)).forEach(SpikeTrain::clear);
+        Arrays.stream(currentSignalsGrid.get(x, y)).forEach(SpikeTrain::clear);
         if (outputConverters.get(x, y) != null) {
           outputConverters.get(x, y).reset();
         }
@@ -127,53 +130,67 @@ public class QuantizedDistributedSpikingSensing extends AbstractController {
       if (entry.value() == null) {
         continue;
       }
+      int x = entry.key().x();
+      int y = entry.key().y();
       //get inputs
-      int[][] lastSignals = getLastSignals(entry.key().x(), entry.key().y());
-      int[][] sensorValues = convertSensorReadings(entry.value().getSensorReadings(), inputConverters.get(entry.key().x(), entry.key().y()), t);
-      int[][] inputs = ArrayUtils.addAll(lastSignals, sensorValues);
+      SpikeTrain[] inputs = inputsGrid.get(x, y);
+      getLastSignals(x, y, inputs);
+      convertSensorReadings(entry.value(), inputConverters.get(x, y), t, inputs, signals * Dir.values().length);
       //compute outputs
-      QuantizedMultivariateSpikingFunction function = functions.get(entry.key().x(), entry.key().y());
-      int[][] outputs = function != null ? function.apply(t, inputs) : new int[nOfOutputs(entry.key().x(), entry.key().y())][ARRAY_SIZE];
+      SpikeTrain[] outputs = outputsGrid.get(x, y);
+      QuantizedMultivariateSpikingFunction function = functions.get(x, y);
+      if (function != null) {
+        function.apply(t, inputs, outputs);
+      } else {
+        Arrays.stream(outputs).forEach(SpikeTrain::clear);
+      }
       //apply outputs
-      double force = outputConverters.get(entry.key().x(), entry.key().y()).convert(outputs[0], t - previousTime);
-      controlSignals.set(entry.key().x(), entry.key().y(), force);
-      System.arraycopy(outputs, 1, currentSignalsGrid.get(entry.key().x(), entry.key().y()), 0, outputs.length - 1);
+      double force = outputConverters.get(x, y).convert(outputs[0], t - previousTime);
+      controlSignals.set(x, y, force);
+      SpikeTrain[] currentSignals = currentSignalsGrid.get(x, y);
+      for (int i = 1; i < outputs.length; i++) {
+        currentSignals[i - 1].copyFrom(outputs[i]);
+      }
     }
     previousTime = t;
-    for (Grid.Entry<Voxel> entry : voxels) {
-      System.arraycopy(currentSignalsGrid.get(entry.key().x(), entry.key().y()), 0, lastSignalsGrid.get(entry.key().x(), entry.key().y()), 0, signals * Dir.values().length);
+    //swap current and last signals, which are overwritten at the next step
+    for (int x = 0; x < lastSignalsGrid.getW(); x++) {
+      for (int y = 0; y < lastSignalsGrid.getH(); y++) {
+        SpikeTrain[] lastSignals = lastSignalsGrid.get(x, y);
+        lastSignalsGrid.set(x, y, currentSignalsGrid.get(x, y));
+        currentSignalsGrid.set(x, y, lastSignals);
+      }
     }
     return controlSignals;
   }
 
-  protected int[][] getLastSignals(int x, int y) {
-    int[][] values = new int[signals * Dir.values().length][];
+  protected void getLastSignals(int x, int y, SpikeTrain[] values) {
     if (signals <= 0) {
-      return values;
+      return;
     }
     int c = 0;
     for (Dir dir : Dir.values()) {
       int adjacentX = x + dir.dx;
       int adjacentY = y + dir.dy;
-      int[][] lastSignals = lastSignalsGrid.get(adjacentX, adjacentY);
-      if (lastSignals != null) {
-        int index = Dir.adjacent(dir).index;
-        System.arraycopy(lastSignals, index * signals, values, c, signals);
+      SpikeTrain[] lastSignals = lastSignalsGrid.get(adjacentX, adjacentY);
+      int index = Dir.adjacent(dir).index;
+      for (int i = 0; i < signals; i++) {
+        if (lastSignals != null) {
+          values[c + i].copyFrom(lastSignals[index * signals + i]);
+        } else {
+          values[c + i].clear();
+        }
       }
       c = c + signals;
     }
-    for (int i = 0; i < values.length; i++) {
-      if (values[i] == null) {
-        values[i] = new int[QuantizedValueToSpikeTrainConverter.ARRAY_SIZE];
-      }
-    }
-    return values;
   }
 
-  private int[][] convertSensorReadings(double[] sensorsReadings, QuantizedValueToSpikeTrainConverter[] valueToSpikeTrainConverters, double t) {
-    int[][] convertedValues = new int[sensorsReadings.length][];
-    IntStream.range(0, sensorsReadings.length).forEach(i -> convertedValues[i] = valueToSpikeTrainConverters[i].convert(sensorsReadings[i], t - previousTime, t));
-    return convertedValues;
+  private void convertSensorReadings(Voxel voxel, QuantizedValueToSpikeTrainConverter[] valueToSpikeTrainConverters, double t, SpikeTrain[] spikeTrains, int offset) {
+    double[] sensorsReadings = voxel.getSensorReadingsBuffer();
+    int readingsOffset = voxel.getSensorReadingsOffset();
+    for (int i = 0; i < voxel.nOfSensorReadings(); i++) {
+      valueToSpikeTrainConverters[i].convert(sensorsReadings[readingsOffset + i], t - previousTime, t, spikeTrains[offset + i]);
+    }
   }
 
   public int nOfInputs(int x, int y) {
@@ -40,27 +40,24 @@ public class QuantizedDistributedSpikingSensingNonDirectional extends QuantizedD
   }
 
   @Override
-  protected int[][] getLastSignals(int x, int y) {
-    int[][] values = new int[signals * Dir.values().length][];
+  protected void getLastSignals(int x, int y, SpikeTrain[] values) {
     if (signals <= 0) {
-      return values;
+      return;
     }
     int c = 0;
     for (Dir dir : Dir.values()) {
       int adjacentX = x + dir.dx;
       int adjacentY = y + dir.dy;
-      int[][] lastSignals = lastSignalsGrid.get(adjacentX, adjacentY);
-      if (lastSignals != null) {
-        System.arraycopy(lastSignals, 0, values, c, signals);
+      SpikeTrain[] lastSignals = lastSignalsGrid.get(adjacentX, adjacentY);
+      for (int i = 0; i < signals; i++) {
+        if (lastSignals != null) {
+          values[c + i].copyFrom(lastSignals[i]);
+        } else {
+          values[c + i].clear();
+        }
       }
       c = c + signals;
     }
-    for (int i = 0; i < values.length; i++) {
-      if (values[i] == null) {
-        values[i] = new int[QuantizedValueToSpikeTrainConverter.ARRAY_SIZE];
-      }
-    }
-    return values;
   }
 
   @Override
@@ -7,6 +7,7 @@ import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
 import it.units.erallab.hmsrobots.core.controllers.StatefulNN;
 import it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.stv.QuantizedMovingAverageSpikeTrainToValueConverter;
 import it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.stv.QuantizedSpikeTrainToValueConverter;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.vts.QuantizedValueToSpikeTrainConverter;
 import it.units.erallab.hmsrobots.core.snapshots.SNNState;
 import it.units.erallab.hmsrobots.util.Parametrized;
 import it.units.erallab.hmsrobots.util.SerializationUtils;
@@ -28,7 +29,9 @@ public class QuantizedMultilayerSpikingNetwork implements QuantizedMultivariateS
 
   protected boolean spikesTracker = false;
   protected final List<Double>[][] spikes;
-  protected final int[][][] currentSpikes;
+  protected final SpikeTrain[][] currentSpikeTrains;
+  private final double[] weightedSpikeTrain;
+  private final double[] incomingWeights;
 
   protected boolean weightsTracker = false;
   protected final Map<Double, double[]> weightsInTime;
@@ -53,9 +56,11 @@ public class QuantizedMultilayerSpikingNetwork implements QuantizedMultivariateS
       ));
     }
     spikes = new List[neurons.length][];
-    currentSpikes = new int[neurons.length][][];
+    currentSpikeTrains = new SpikeTrain[neurons.length][];
+    weightedSpikeTrain = new double[QuantizedValueToSpikeTrainConverter.ARRAY_SIZE];
+    incomingWeights = new double[Arrays.stream(neurons).mapToInt(l -> l.length).max().orElse(0)];
     for (int i = 0; i < neurons.length; i++) {
-      currentSpikes[i] = new int[neurons[i].length][];
+      currentSpikeTrains[i] = SpikeTrain.create(neurons[i].length, weightedSpikeTrain.length);
       spikes[i] = new List[neurons[i].length];
       for (int j = 0; j < spikes[i].length; j++) {
         spikes[i][j] = new ArrayList<>();
@@ -132,54 +137,55 @@ public class QuantizedMultilayerSpikingNetwork implements QuantizedMultivariateS
 
   @Override
   public int[][] apply(double t, int[][] inputs) {
+    SpikeTrain[] inputSpikeTrains = Arrays.stream(inputs).map(SpikeTrain::of).toArray(SpikeTrain[]::new);
+    SpikeTrain[] outputSpikeTrains = SpikeTrain.create(getOutputDimension(), weightedSpikeTrain.length);
+    apply(t, inputSpikeTrains, outputSpikeTrains);
+    return Arrays.stream(outputSpikeTrains).map(SpikeTrain::toArray).toArray(int[][]::new);
+  }
+
+  @Override
+  public void apply(double t, SpikeTrain[] inputs, SpikeTrain[] outputs) {
     timeWindowSize = t - previousApplicationTime;
     if (inputs.length != neurons[0].length) {
       throw new IllegalArgumentException(String.format("Expected input length is %d: found %d", neurons[0].length, inputs.length));
     }
-    // destination neuron, array of incoming weights
-    double[][] incomingWeights = new double[inputs.length][inputs.length];
-    for (int i = 0; i < incomingWeights.length; i++) {
-      incomingWeights[i][i] = 1;
-      if (neurons[0][i] instanceof QuantizedIzhikevicNeuron) {
-        incomingWeights[i][i] = 100;
-      }
-    }
     // iterating over layers
     for (int layerIndex = 0; layerIndex < neurons.length; layerIndex++) {
       QuantizedSpikingFunction[] layer = neurons[layerIndex];
       for (int neuronIndex = 0; neuronIndex < layer.length; neuronIndex++) {
-        double[] weightedInputSpikeTrain = createWeightedSpikeTrain(layerIndex == 0 ? inputs : currentSpikes[layerIndex - 1], incomingWeights[neuronIndex]);
-        layer[neuronIndex].setSumOfIncomingWeights(Arrays.stream(incomingWeights[neuronIndex]).sum());  // for homeostasis
-        currentSpikes[layerIndex][neuronIndex] = layer[neuronIndex].compute(weightedInputSpikeTrain, t);
-        if (spikesTracker) {
-          int arrayLength = currentSpikes[layerIndex][neuronIndex].length;
-          int finalLayerIndex = layerIndex;
-          int finalNeuronIndex = neuronIndex;
-          Arrays.stream(currentSpikes[layerIndex][neuronIndex]).forEach(x -> spikes[finalLayerIndex][finalNeuronIndex].add(x / arrayLength * timeWindowSize + previousApplicationTime));
+        double sumOfIncomingWeights = 0;
+        if (layerIndex == 0) {
+          // each input neuron receives only its own input
+          sumOfIncomingWeights = (layer[neuronIndex] instanceof QuantizedIzhikevicNeuron) ? 100 : 1;
+          if (inputs[neuronIndex].size() != weightedSpikeTrain.length) {
+            throw new IllegalArgumentException(String.format("Expected spike train size is %d: found %d", weightedSpikeTrain.length, inputs[neuronIndex].size()));
+          }
+          Arrays.fill(weightedSpikeTrain, 0d);
+          inputs[neuronIndex].addWeightedTo(weightedSpikeTrain, sumOfIncomingWeights);
+        } else {
+          for (int j = 0; j < neurons[layerIndex - 1].length; j++) {
+            incomingWeights[j] = weights[layerIndex - 1][j][neuronIndex];
+            sumOfIncomingWeights = sumOfIncomingWeights + incomingWeights[j];
+          }
+          SpikeTrain.weightedSum(currentSpikeTrains[layerIndex - 1], incomingWeights, weightedSpikeTrain);
         }
-      }
-      if (layerIndex == neurons.length - 1) {
-        break;
-      }
-      incomingWeights = new double[neurons[layerIndex + 1].length][neurons[layerIndex].length];
-      for (int i = 0; i < incomingWeights.length; i++) {
-        for (int j = 0; j < incomingWeights[0].length; j++) {
-          incomingWeights[i][j] = weights[layerIndex][j][i];
+        layer[neuronIndex].setSumOfIncomingWeights(sumOfIncomingWeights);  // for homeostasis
+        SpikeTrain spikeTrain = currentSpikeTrains[layerIndex][neuronIndex];
+        layer[neuronIndex].compute(weightedSpikeTrain, t, spikeTrain);
+        if (spikesTracker) {
+          for (int slot = 0; slot < spikeTrain.size(); slot++) {
+            for (int k = 0; k < spikeTrain.get(slot); k++) {
+              spikes[layerIndex][neuronIndex].add((double) slot / spikeTrain.size() * timeWindowSize + previousApplicationTime);
+            }
+          }
         }
       }
     }
-    previousApplicationTime = t;
-    return currentSpikes[currentSpikes.length - 1];
-  }
-
-  protected double[] createWeightedSpikeTrain(int[][] inputs, double[] weights) {
-    double[] weightedSpikeTrain = new double[inputs[0].length];
-    for (int time = 0; time < weightedSpikeTrain.length; time++) {
-      for (int neuron = 0; neuron < inputs.length; neuron++) {
-        weightedSpikeTrain[time] += weights[neuron] * inputs[neuron][time];
-      }
+    SpikeTrain[] outputSpikeTrains = currentSpikeTrains[currentSpikeTrains.length - 1];
+    for (int i = 0; i < outputSpikeTrains.length; i++) {
+      outputs[i].copyFrom(outputSpikeTrains[i]);
     }
-    return weightedSpikeTrain;
+    previousApplicationTime = t;
   }
 
   public static int countWeights(QuantizedSpikingFunction[][] neurons) {
@@ -294,6 +300,10 @@ public class QuantizedMultilayerSpikingNetwork implements QuantizedMultivariateS
   }
 
   public int[][][] getCurrentSpikes() {
+    int[][][] currentSpikes = new int[currentSpikeTrains.length][][];
+    for (int i = 0; i < currentSpikeTrains.length; i++) {
+      currentSpikes[i] = Arrays.stream(currentSpikeTrains[i]).map(SpikeTrain::toArray).toArray(int[][]::new);
+    }
     return currentSpikes;
   }
 
@@ -308,6 +318,7 @@ public class QuantizedMultilayerSpikingNetwork implements QuantizedMultivariateS
       for (int j = 0; j < neurons[i].length; j++) {
         neurons[i][j].reset();
         spikes[i][j].clear();
+        currentSpikeTrains[i][j].clear();
         snapshotConverters[i][j].reset();
       }
     }
@@ -30,6 +30,8 @@ public class QuantizedMultilayerSpikingNetworkWithConverters<N extends Quantized
   private final QuantizedSpikeTrainToValueConverter[] quantizedSpikeTrainToValueConverters;
 
   private double previousApplicationTime = 0d;
+  private transient SpikeTrain[] inputSpikeTrains;
+  private transient SpikeTrain[] outputSpikeTrains;
 
   @JsonCreator
   public QuantizedMultilayerSpikingNetworkWithConverters(
@@ -58,13 +60,18 @@ public class QuantizedMultilayerSpikingNetworkWithConverters<N extends Quantized
   @Override
   public double[] apply(final double t, double[] input) {
     double deltaT = t - previousApplicationTime;
-    int[][] inputSpikes = new int[input.length][];
-    IntStream.range(0, input.length).forEach(i ->
-        inputSpikes[i] = quantizedValueToSpikeTrainConverters[i].convert(input[i], deltaT, t));
-    int[][] outputSpikes = multilayerSpikingNetwork.apply(t, inputSpikes);
-    double[] output = new double[outputSpikes.length];
-    IntStream.range(0, outputSpikes.length).forEach(i ->
-        output[i] = quantizedSpikeTrainToValueConverters[i].convert(outputSpikes[i], deltaT));
+    if (inputSpikeTrains == null || inputSpikeTrains.length != input.length) {
+      inputSpikeTrains = SpikeTrain.create(input.length);
+      outputSpikeTrains = SpikeTrain.create(multilayerSpikingNetwork.getOutputDimension());
+    }
+    for (int i = 0; i < input.length; i++) {
+      quantizedValueToSpikeTrainConverters[i].convert(input[i], deltaT, t, inputSpikeTrains[i]);
+    }
+    multilayerSpikingNetwork.apply(t, inputSpikeTrains, outputSpikeTrains);
+    double[] output = new double[outputSpikeTrains.length];
+    for (int i = 0; i < output.length; i++) {
+      output[i] = quantizedSpikeTrainToValueConverters[i].convert(outputSpikeTrains[i], deltaT);
+    }
     previousApplicationTime = t;
     return output;
   }
@@ -9,6 +9,17 @@ public interface QuantizedMultivariateSpikingFunction extends Resettable, Serial
 
   int[][] apply(double t, int[][] inputs);
 
+  default void apply(double t, SpikeTrain[] inputs, SpikeTrain[] outputs) {
+    int[][] arrayInputs = new int[inputs.length][];
+    for (int i = 0; i < inputs.length; i++) {
+      arrayInputs[i] = inputs[i].toArray();
+    }
+    int[][] arrayOutputs = apply(t, arrayInputs);
+    for (int i = 0; i < outputs.length; i++) {
+      outputs[i].set(arrayOutputs[i]);
+    }
+  }
+
   int getInputDimension();
 
   int getOutputDimension();
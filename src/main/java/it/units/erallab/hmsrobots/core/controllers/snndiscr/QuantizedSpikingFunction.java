@@ -10,6 +10,10 @@ public interface QuantizedSpikingFunction extends Resettable, Serializable {
 
     int[] compute(double[] weightedSpikes, double time);
 
+  default void compute(double[] weightedSpikes, double time, SpikeTrain spikeTrain) {
+    spikeTrain.set(compute(weightedSpikes, time));
+  }
+
     void setSumOfIncomingWeights(double sumOfIncomingWeights);
 
     void setPlotMode(boolean plotMode);
@@ -5,7 +5,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.stream.IntStream;
 
 public abstract class QuantizedSpikingNeuron implements QuantizedSpikingFunction {
 
@@ -50,26 +49,31 @@ public abstract class QuantizedSpikingNeuron implements QuantizedSpikingFunction
 
   @Override
   public int[] compute(double[] weightedSpikes, double t) {
-    int[] spikes = new int[weightedSpikes.length];
+    SpikeTrain spikeTrain = new SpikeTrain(weightedSpikes.length);
+    compute(weightedSpikes, t, spikeTrain);
+    return spikeTrain.toArray();
+  }
+
+  @Override
+  public void compute(double[] weightedSpikes, double t, SpikeTrain spikeTrain) {
+    spikeTrain.clear();
     double timeWindowSize = t - lastEvaluatedTime;
     if (timeWindowSize == 0) {
-      return spikes;
+      return;
+    }
+    for (int spikeTime = 0; spikeTime < weightedSpikes.length; spikeTime++) {
+      double absoluteSpikeTime = spikeTime * timeWindowSize / (double) weightedSpikes.length + lastEvaluatedTime;
+      double weightedSpike = weightedSpikes[spikeTime];
+      if (plotMode && weightedSpike != 0) {
+        inputSpikesValues.put(absoluteSpikeTime, weightedSpike);
+      }
+      acceptWeightedSpike(absoluteSpikeTime, weightedSpike);
+      if (membranePotential >= thresholdPotential) {
+        spikeTrain.add(spikeTime);
+        resetAfterSpike();
+      }
     }
-    IntStream.range(0, weightedSpikes.length).forEach(spikeTime -> {
-          double absoluteSpikeTime = spikeTime * timeWindowSize / (double) weightedSpikes.length + lastEvaluatedTime;
-          double weightedSpike = weightedSpikes[spikeTime];
-          if (plotMode && weightedSpike != 0) {
-            inputSpikesValues.put(absoluteSpikeTime, weightedSpike);
-          }
-          acceptWeightedSpike(absoluteSpikeTime, weightedSpike);
-          if (membranePotential >= thresholdPotential) {
-            spikes[spikeTime] = 1;
-            resetAfterSpike();
-          }
-        }
-    );
     lastEvaluatedTime = t;
-    return spikes;
   }
 
   protected abstract void acceptWeightedSpike(double spikeTime, double weightedSpike);
@@ -0,0 +1,190 @@
+package it.units.erallab.hmsrobots.core.controllers.snndiscr;
+
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.vts.QuantizedValueToSpikeTrainConverter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A quantized spike train stored as a bitset with one bit per time slot. Slots hosting more than one spike, which
+ * only some value to spike train converters produce, are counted in an additional count vector that is allocated
+ * only when needed.
+ */
+public class SpikeTrain implements Serializable {
+
+  private final int size;
+  private final long[] words;
+  private int[] extraSpikes;
+  private int nOfExtraSpikes;
+
+  public SpikeTrain(int size) {
+    this.size = size;
+    words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+  }
+
+  public SpikeTrain() {
+    this(QuantizedValueToSpikeTrainConverter.ARRAY_SIZE);
+  }
+
+  public static SpikeTrain of(int[] spikes) {
+    SpikeTrain spikeTrain = new SpikeTrain(spikes.length);
+    spikeTrain.set(spikes);
+    return spikeTrain;
+  }
+
+  public static SpikeTrain[] create(int n, int size) {
+    SpikeTrain[] spikeTrains = new SpikeTrain[n];
+    for (int i = 0; i < n; i++) {
+      spikeTrains[i] = new SpikeTrain(size);
+    }
+    return spikeTrains;
+  }
+
+  public static SpikeTrain[] create(int n) {
+    return create(n, QuantizedValueToSpikeTrainConverter.ARRAY_SIZE);
+  }
+
+  //fills target with the sum of the spike trains, each multiplied by the corresponding weight
+  public static void weightedSum(SpikeTrain[] spikeTrains, double[] weights, double[] target) {
+    Arrays.fill(target, 0d);
+    for (int i = 0; i < spikeTrains.length; i++) {
+      if (weights[i] != 0d) {
+        spikeTrains[i].addWeightedTo(target, weights[i]);
+      }
+    }
+  }
+
+  public void add(int slot) {
+    int wordIndex = slot / Long.SIZE;
+    long mask = 1L << (slot % Long.SIZE);
+    if ((words[wordIndex] & mask) == 0) {
+      words[wordIndex] = words[wordIndex] | mask;
+      return;
+    }
+    if (extraSpikes == null) {
+      extraSpikes = new int[size];
+    }
+    extraSpikes[slot] = extraSpikes[slot] + 1;
+    nOfExtraSpikes = nOfExtraSpikes + 1;
+  }
+
+  public void addWeightedTo(double[] target, double weight) {
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      while (word != 0) {
+        int slot = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        target[slot] = target[slot] + weight * (nOfExtraSpikes > 0 ? 1 + extraSpikes[slot] : 1);
+        word = word & (word - 1);
+      }
+    }
+  }
+
+  public double averageFrequency(double timeWindowSize) {
+    if (timeWindowSize == 0) {
+      return 0d;
+    }
+    return count() / timeWindowSize;
+  }
+
+  public void clear() {
+    Arrays.fill(words, 0L);
+    if (nOfExtraSpikes > 0) {
+      Arrays.fill(extraSpikes, 0);
+      nOfExtraSpikes = 0;
+    }
+  }
+
+  public void copyFrom(SpikeTrain other) {
+    if (other.size != size) {
+      throw new IllegalArgumentException(String.format("Wrong spike train size: %d expected, %d found", size, other.size));
+    }
+    System.arraycopy(other.words, 0, words, 0, words.length);
+    if (other.nOfExtraSpikes > 0) {
+      if (extraSpikes == null) {
+        extraSpikes = new int[size];
+      }
+      System.arraycopy(other.extraSpikes, 0, extraSpikes, 0, size);
+    } else if (nOfExtraSpikes > 0) {
+      Arrays.fill(extraSpikes, 0);
+    }
+    nOfExtraSpikes = other.nOfExtraSpikes;
+  }
+
+  public int count() {
+    int count = nOfExtraSpikes;
+    for (long word : words) {
+      count = count + Long.bitCount(word);
+    }
+    return count;
+  }
+
+  public int get(int slot) {
+    if ((words[slot / Long.SIZE] & (1L << (slot % Long.SIZE))) == 0) {
+      return 0;
+    }
+    return nOfExtraSpikes > 0 ? 1 + extraSpikes[slot] : 1;
+  }
+
+  public boolean isEmpty() {
+    for (long word : words) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void set(int[] spikes) {
+    if (spikes.length != size) {
+      throw new IllegalArgumentException(String.format("Wrong spike train size: %d expected, %d found", size, spikes.length));
+    }
+    clear();
+    for (int slot = 0; slot < spikes.length; slot++) {
+      for (int k = 0; k < spikes[slot]; k++) {
+        add(slot);
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int[] toArray() {
+    int[] spikes = new int[size];
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      while (word != 0) {
+        int slot = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        spikes[slot] = nOfExtraSpikes > 0 ? 1 + extraSpikes[slot] : 1;
+        word = word & (word - 1);
+      }
+    }
+    return spikes;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SpikeTrain that = (SpikeTrain) o;
+    return size == that.size && Arrays.equals(toArray(), that.toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(toArray());
+  }
+
+  @Override
+  public String toString() {
+    return "SpikeTrain{" +
+        "size=" + size +
+        ", count=" + count() +
+        '}';
+  }
+}
@@ -2,6 +2,7 @@ package it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.stv;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.SpikeTrain;
 
 import java.util.Arrays;
 
@@ -31,6 +32,11 @@ public class QuantizedAverageFrequencySpikeTrainToValueConverter implements Quan
     return convert(Arrays.stream(spikeTrain).sum(), timeWindowSize);
   }
 
+  @Override
+  public double convert(SpikeTrain spikeTrain, double timeWindowSize) {
+    return convert(spikeTrain.count(), timeWindowSize);
+  }
+
   protected double convert(int numberOfSpikes, double timeWindowSize) {
     if (timeWindowSize == 0) {
       return normalizeValue(0);
@@ -2,6 +2,7 @@ package it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.stv;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.SpikeTrain;
 
 import java.util.Arrays;
 import java.util.stream.IntStream;
@@ -41,8 +42,17 @@ public class QuantizedMovingAverageSpikeTrainToValueConverter extends QuantizedA
 
   @Override
   public double convert(int[] spikeTrain, double timeWindowSize) {
+    return accumulate(Arrays.stream(spikeTrain).sum(), timeWindowSize);
+  }
+
+  @Override
+  public double convert(SpikeTrain spikeTrain, double timeWindowSize) {
+    return accumulate(spikeTrain.count(), timeWindowSize);
+  }
+
+  private double accumulate(int numberOfSpikes, double timeWindowSize) {
     windowSizes[currentPosition] = timeWindowSize;
-    spikesPerWindow[currentPosition] = Arrays.stream(spikeTrain).sum();
+    spikesPerWindow[currentPosition] = numberOfSpikes;
     currentPosition = (currentPosition == (windowSizes.length - 1)) ? 0 : (currentPosition + 1);
     int totalNumberOfSpikes = 0;
     double totalWindowSize = 0;
@@ -2,6 +2,7 @@ package it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.stv;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.units.erallab.hmsrobots.core.controllers.Resettable;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.SpikeTrain;
 
 import java.io.Serializable;
 import java.util.SortedSet;
@@ -15,6 +16,10 @@ public interface QuantizedSpikeTrainToValueConverter extends Serializable, Reset
 
   double convert(int[] spikeTrain, double timeWindowSize);
 
+  default double convert(SpikeTrain spikeTrain, double timeWindowSize) {
+    return convert(spikeTrain.toArray(), timeWindowSize);
+  }
+
   void setFrequency(double frequency);
 
   @Override
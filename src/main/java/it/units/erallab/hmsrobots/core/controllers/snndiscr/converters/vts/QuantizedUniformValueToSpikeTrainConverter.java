@@ -2,6 +2,7 @@ package it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.vts;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.SpikeTrain;
 
 public class QuantizedUniformValueToSpikeTrainConverter implements QuantizedValueToSpikeTrainConverter {
 
@@ -28,16 +29,22 @@ public class QuantizedUniformValueToSpikeTrainConverter implements QuantizedValu
 
   @Override
   public int[] convert(double value, double timeWindowSize, double timeWindowEnd) {
-    int[] spikes = new int[ARRAY_SIZE];
+    SpikeTrain spikeTrain = new SpikeTrain(ARRAY_SIZE);
+    convert(value, timeWindowSize, timeWindowEnd, spikeTrain);
+    return spikeTrain.toArray();
+  }
+
+  @Override
+  public void convert(double value, double timeWindowSize, double timeWindowEnd, SpikeTrain spikeTrain) {
+    spikeTrain.clear();
     value = clipInputValue(value);
     if (value == 0) {
-      return spikes;
+      return;
     }
     double deltaT = computeDeltaT(value);
     for (double t = deltaT; t < timeWindowSize; t += deltaT) {
-      spikes[(int)Math.floor(t / timeWindowSize * ARRAY_SIZE)] += 1;
+      spikeTrain.add((int)Math.floor(t / timeWindowSize * ARRAY_SIZE));
     }
-    return spikes;
   }
 
   protected double computeDeltaT(double value) {
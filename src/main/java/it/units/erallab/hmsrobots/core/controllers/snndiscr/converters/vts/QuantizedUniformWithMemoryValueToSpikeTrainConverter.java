@@ -2,6 +2,7 @@ package it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.vts;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.SpikeTrain;
 
 public class QuantizedUniformWithMemoryValueToSpikeTrainConverter extends QuantizedUniformValueToSpikeTrainConverter {
 
@@ -18,21 +19,20 @@ public class QuantizedUniformWithMemoryValueToSpikeTrainConverter extends Quanti
   }
 
   @Override
-  public int[] convert(double value, double timeWindowSize, double timeWindowEnd) {
+  public void convert(double value, double timeWindowSize, double timeWindowEnd, SpikeTrain spikeTrain) {
     value = clipInputValue(value);
-    int[] spikes = new int[ARRAY_SIZE];
+    spikeTrain.clear();
     if (value == 0) {
-      return spikes;
+      return;
     }
     double timeWindowStart = timeWindowEnd - timeWindowSize;
     double deltaT = computeDeltaT(value);
     for (double t = lastSpikeTime; t < timeWindowEnd; t += deltaT) {
       if (t >= timeWindowStart) {
-        spikes[(int)Math.floor(((t - timeWindowStart) / timeWindowSize) * ARRAY_SIZE)] += 1;
+        spikeTrain.add((int)Math.floor(((t - timeWindowStart) / timeWindowSize) * ARRAY_SIZE));
         lastSpikeTime = t;
       }
     }
-    return spikes;
   }
 
   @Override
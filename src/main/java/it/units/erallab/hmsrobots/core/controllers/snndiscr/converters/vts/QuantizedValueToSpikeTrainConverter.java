@@ -2,6 +2,7 @@ package it.units.erallab.hmsrobots.core.controllers.snndiscr.converters.vts;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.units.erallab.hmsrobots.core.controllers.Resettable;
+import it.units.erallab.hmsrobots.core.controllers.snndiscr.SpikeTrain;
 
 import java.io.Serializable;
 
@@ -16,6 +17,10 @@ public interface QuantizedValueToSpikeTrainConverter extends Serializable, Reset
 
   int[] convert(double value, double timeWindowSize, double timeWindowEnd);
 
+  default void convert(double value, double timeWindowSize, double timeWindowEnd, SpikeTrain spikeTrain) {
+    spikeTrain.set(convert(value, timeWindowSize, timeWindowEnd));
+  }
+
   void setFrequency(double frequency);
 
   @Override
@@ -17,14 +17,12 @@
 package it.units.erallab.hmsrobots.core.objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import it.units.erallab.hmsrobots.core.geometry.Point2;
 import it.units.erallab.hmsrobots.core.geometry.Poly;
 import it.units.erallab.hmsrobots.core.sensors.Sensor;
-import it.units.erallab.hmsrobots.core.sensors.Touch;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
 import it.units.erallab.hmsrobots.util.DoubleRange;
-import org.apache.commons.lang3.ArrayUtils;
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.joint.DistanceJoint;
 
@@ -41,8 +39,14 @@ public class BreakableVoxel extends Voxel {
   private final double restoreTime;
   @JsonProperty
   private final long randomSeed;
-  private final EnumMap<MalfunctionTrigger, Double> triggerCounters;
-  private final EnumMap<ComponentType, MalfunctionType> state;
+  private final MalfunctionTrigger[] triggers;
+  private final double[] thresholds;
+  private final ComponentType[] componentTypes;
+  private final MalfunctionType[][] malfunctionTypes;
+  private final double[] triggerCounters;
+  private final MalfunctionType[] state;
+  private transient double[] survivals;
+  private transient double[] survivalThresholds;
   private transient double lastT;
   private transient double lastBreakT;
   private transient double lastControlEnergy;
@@ -89,8 +93,15 @@ public class BreakableVoxel extends Voxel {
     this.malfunctions = malfunctions;
     this.triggerThresholds = triggerThresholds;
     this.restoreTime = restoreTime;
-    triggerCounters = new EnumMap<>(MalfunctionTrigger.class);
-    state = new EnumMap<>(ComponentType.class);
+    triggers = triggerThresholds.keySet().toArray(MalfunctionTrigger[]::new);
+    thresholds = Arrays.stream(triggers).mapToDouble(triggerThresholds::get).toArray();
+    componentTypes = malfunctions.keySet().toArray(ComponentType[]::new);
+    malfunctionTypes = Arrays.stream(componentTypes)
+        .map(c -> malfunctions.get(c).toArray(MalfunctionType[]::new))
+        .toArray(MalfunctionType[][]::new);
+    triggerCounters = new double[MalfunctionTrigger.values().length];
+    state = new MalfunctionType[ComponentType.values().length];
+    Arrays.fill(state, MalfunctionType.NONE);
     reset();
   }
 
@@ -106,9 +117,15 @@ public class BreakableVoxel extends Voxel {
     this.malfunctions = malfunctions;
     this.triggerThresholds = triggerThresholds;
     this.restoreTime = restoreTime;
-    triggerCounters = new EnumMap<>(MalfunctionTrigger.class);
-    state = new EnumMap<>(ComponentType.class);
-    Arrays.stream(ComponentType.values()).sequential().forEach(component -> state.put(component, MalfunctionType.NONE));
+    triggers = triggerThresholds.keySet().toArray(MalfunctionTrigger[]::new);
+    thresholds = Arrays.stream(triggers).mapToDouble(triggerThresholds::get).toArray();
+    componentTypes = malfunctions.keySet().toArray(ComponentType[]::new);
+    malfunctionTypes = Arrays.stream(componentTypes)
+        .map(c -> malfunctions.get(c).toArray(MalfunctionType[]::new))
+        .toArray(MalfunctionType[][]::new);
+    triggerCounters = new double[MalfunctionTrigger.values().length];
+    state = new MalfunctionType[ComponentType.values().length];
+    Arrays.fill(state, MalfunctionType.NONE);
     reset();
   }
 
@@ -125,38 +142,42 @@ public class BreakableVoxel extends Voxel {
   }
 
   @Override
-  public void act(double t) {
-    super.act(t);
-    if (state.get(ComponentType.SENSORS).equals(MalfunctionType.NONE) || sensorReadings == null) {
-      sensorReadings = super.getSensorReadings();
+  public void act(double t, boolean sensing) {
+    super.act(t, sensing);
+    if (sensing && (state[ComponentType.SENSORS.ordinal()] == MalfunctionType.NONE || sensorReadings == null)) {
+      if (sensorReadings == null) {
+        sensorReadings = new double[nOfSensorReadings()];
+      }
+      System.arraycopy(getSensorReadingsBuffer(), getSensorReadingsOffset(), sensorReadings, 0, sensorReadings.length);
     }
     //update counters
-    triggerCounters.put(MalfunctionTrigger.TIME, triggerCounters.get(MalfunctionTrigger.TIME) + t - lastT);
-    triggerCounters.put(
-        MalfunctionTrigger.CONTROL,
-        triggerCounters.get(MalfunctionTrigger.CONTROL) + (getControlEnergy() - lastControlEnergy)
-    );
-    triggerCounters.put(
-        MalfunctionTrigger.AREA,
-        triggerCounters.get(MalfunctionTrigger.AREA) + (getAreaRatioEnergy() - lastAreaRatioEnergy)
-    );
+    int time = MalfunctionTrigger.TIME.ordinal();
+    int control = MalfunctionTrigger.CONTROL.ordinal();
+    int area = MalfunctionTrigger.AREA.ordinal();
+    triggerCounters[time] = triggerCounters[time] + (t - lastT);
+    triggerCounters[control] = triggerCounters[control] + (getControlEnergy() - lastControlEnergy);
+    triggerCounters[area] = triggerCounters[area] + (getAreaRatioEnergy() - lastAreaRatioEnergy);
     lastT = t;
     lastControlEnergy = getControlEnergy();
     lastAreaRatioEnergy = getAreaRatioEnergy();
     boolean breaking = false;
-    //check if malfunction is applicable
-    for (Map.Entry<MalfunctionTrigger, Double> triggerThreshold : triggerThresholds.entrySet()) {
-      if (random.nextDouble() < 1d - Math.tanh(triggerThreshold.getValue() / triggerCounters.get(triggerThreshold.getKey()))) {
-        //reset counters
-        Arrays.stream(MalfunctionTrigger.values()).sequential().forEach(trigger -> triggerCounters.put(trigger, 0d));
+    //check if malfunction is applicable: at each step, each trigger fires with probability 1-tanh(threshold/counter)
+    for (int i = 0; i < triggers.length; i++) {
+      double notFiringProbability = Math.tanh(thresholds[i] / triggerCounters[triggers[i].ordinal()]);
+      if (!Double.isNaN(notFiringProbability)) {
+        survivals[i] = survivals[i] * notFiringProbability;
+      }
+      if (survivals[i] < survivalThresholds[i]) {
+        //reset counters and survivals
+        Arrays.fill(triggerCounters, 0d);
+        sampleSurvivalThresholds();
         //choose component and malfunction
-        ComponentType[] componentTypes = malfunctions.keySet().toArray(ComponentType[]::new);
         if (componentTypes.length > 0) {
           breaking = true;
-          ComponentType componentType = componentTypes[random.nextInt(componentTypes.length)];
-          MalfunctionType[] malfunctionTypes = malfunctions.get(componentType).toArray(MalfunctionType[]::new);
-          MalfunctionType malfunctionType = malfunctionTypes[random.nextInt(malfunctionTypes.length)];
-          state.put(componentType, malfunctionType);
+          int componentIndex = random.nextInt(componentTypes.length);
+          MalfunctionType[] componentMalfunctionTypes = malfunctionTypes[componentIndex];
+          MalfunctionType malfunctionType = componentMalfunctionTypes[random.nextInt(componentMalfunctionTypes.length)];
+          state[componentTypes[componentIndex].ordinal()] = malfunctionType;
           updateStructureMalfunctionType();
         }
       }
@@ -166,49 +187,62 @@ public class BreakableVoxel extends Voxel {
     }
     //possibly restore
     if (t - lastBreakT > restoreTime) {
-      state.put(ComponentType.ACTUATOR, MalfunctionType.NONE);
-      state.put(ComponentType.SENSORS, MalfunctionType.NONE);
-      state.put(ComponentType.STRUCTURE, MalfunctionType.NONE);
+      Arrays.fill(state, MalfunctionType.NONE);
+    }
+    if (sensing) {
+      applySensorsMalfunction();
     }
   }
 
-  @Override
-  public void applyForce(double f) {
-    double innerF = f;
-    if (state.get(ComponentType.ACTUATOR).equals(MalfunctionType.ZERO)) {
-      f = 0;
-    } else if (state.get(ComponentType.ACTUATOR).equals(MalfunctionType.FROZEN)) {
-      f = getLastAppliedForce();
-    } else if (state.get(ComponentType.ACTUATOR).equals(MalfunctionType.RANDOM)) {
-      f = random.nextDouble() * 2d - 1d;
+  //rather than drawing a random number at every step, the step in which a trigger fires is the first one in which the
+  //probability of not having fired yet goes below a value drawn once after each malfunction
+  private void sampleSurvivalThresholds() {
+    for (int i = 0; i < triggers.length; i++) {
+      survivals[i] = 1d;
+      survivalThresholds[i] = 1d - random.nextDouble();
+    }
+  }
+
+  //overwrites the readings of this voxel, where controllers read them, according to the current malfunction
+  private void applySensorsMalfunction() {
+    double[] buffer = getSensorReadingsBuffer();
+    int offset = getSensorReadingsOffset();
+    switch (state[ComponentType.SENSORS.ordinal()]) {
+      case NONE, FROZEN -> System.arraycopy(sensorReadings, 0, buffer, offset, sensorReadings.length);
+      case ZERO -> Arrays.fill(buffer, offset, offset + sensorReadings.length, 0d);
+      case RANDOM -> {
+        for (Sensor sensor : getSensors()) {
+          for (DoubleRange domain : sensor.getDomains()) {
+            buffer[offset] = random.nextDouble() * domain.extent() + domain.min();
+            offset = offset + 1;
+          }
+        }
+      }
     }
-    super.applyForce(f);
   }
 
   @Override
-  public double[] getSensorReadings() {
-    return switch (state.get(ComponentType.SENSORS)) {
-      case NONE, FROZEN -> sensorReadings;
-      case ZERO -> new double[sensorReadings.length];
-      case RANDOM -> getSensors().stream()
-          .map(s -> random(s.getDomains()))
-          .reduce(ArrayUtils::addAll)
-          .orElse(new double[sensorReadings.length]);
-    };
+  public void applyForce(double f) {
+    switch (state[ComponentType.ACTUATOR.ordinal()]) {
+      case ZERO -> f = 0;
+      case FROZEN -> f = getLastAppliedForce();
+      case RANDOM -> f = random.nextDouble() * 2d - 1d;
+    }
+    super.applyForce(f);
   }
 
   @Override
   public VoxelPoly getVoxelPoly() {
     return new VoxelPoly(
-        Poly.of(getVertices().toArray(Point2[]::new)),
+        Poly.of(getVertices()),
         getAngle(),
         getLinearVelocity(),
-        Touch.isTouchingGround(this),
+        isTouchingGround(),
         getAreaRatio(),
         getAreaRatioEnergy(),
         getLastAppliedForce(),
         getControlEnergy(),
-        new EnumMap<>(state)
+        getMalfunctions()
     );
   }
 
@@ -221,8 +255,11 @@ public class BreakableVoxel extends Voxel {
     lastAreaRatioEnergy = 0d;
     random = new Random(randomSeed);
     sensorReadings = null;
-    Arrays.stream(MalfunctionTrigger.values()).sequential().forEach(trigger -> triggerCounters.put(trigger, 0d));
-    Arrays.stream(ComponentType.values()).sequential().forEach(component -> state.put(component, MalfunctionType.NONE));
+    survivals = new double[triggers.length];
+    survivalThresholds = new double[triggers.length];
+    Arrays.fill(triggerCounters, 0d);
+    sampleSurvivalThresholds();
+    Arrays.fill(state, MalfunctionType.NONE);
     updateStructureMalfunctionType();
   }
 
@@ -231,26 +268,32 @@ public class BreakableVoxel extends Voxel {
     return "BreakableVoxel{" + "malfunctions=" + malfunctions + ", triggerThresholds=" + triggerThresholds + ", restoreTime=" + restoreTime + '}';
   }
 
-  public boolean isBroken() {
-    return !state.get(ComponentType.ACTUATOR).equals(MalfunctionType.NONE) || !state.get(ComponentType.SENSORS)
-        .equals(MalfunctionType.NONE) || !state.get(ComponentType.STRUCTURE).equals(MalfunctionType.NONE);
+  @JsonIgnore
+  public EnumMap<ComponentType, MalfunctionType> getMalfunctions() {
+    EnumMap<ComponentType, MalfunctionType> malfunctions = new EnumMap<>(ComponentType.class);
+    for (ComponentType componentType : ComponentType.values()) {
+      malfunctions.put(componentType, state[componentType.ordinal()]);
+    }
+    return malfunctions;
   }
 
-  private double[] random(DoubleRange[] domains) {
-    double[] values = new double[domains.length];
-    for (int i = 0; i < domains.length; i++) {
-      values[i] = random.nextDouble() * domains[i].extent() + domains[i].min();
+  @JsonIgnore
+  public boolean isBroken() {
+    for (MalfunctionType malfunctionType : state) {
+      if (malfunctionType != MalfunctionType.NONE) {
+        return true;
+      }
     }
-    return values;
+    return false;
   }
 
   private void updateStructureMalfunctionType() {
-    if (state.get(ComponentType.STRUCTURE).equals(MalfunctionType.NONE)) {
+    if (state[ComponentType.STRUCTURE.ordinal()] == MalfunctionType.NONE) {
       for (DistanceJoint<Body> springJoint : springJoints) {
         springJoint.setFrequency(springF);
         springJoint.setDampingRatio(springD);
       }
-    } else if (state.get(ComponentType.STRUCTURE).equals(MalfunctionType.FROZEN)) {
+    } else if (state[ComponentType.STRUCTURE.ordinal()] == MalfunctionType.FROZEN) {
       for (DistanceJoint<Body> springJoint : springJoints) {
         springJoint.setFrequency(0d);
         springJoint.setDampingRatio(0d);
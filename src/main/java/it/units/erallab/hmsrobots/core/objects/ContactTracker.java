@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.core.objects;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.contact.Contact;
+import org.dyn4j.world.ContactCollisionData;
+import org.dyn4j.world.World;
+import org.dyn4j.world.listener.ContactListener;
+import org.dyn4j.world.listener.ContactListenerAdapter;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the contacts of registered bodies, updating per-body counters only when a contact begins or ends,
+ * so that contact queries do not need to scan the contact constraints of the world.
+ */
+public class ContactTracker extends ContactListenerAdapter<Body> {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final Map<Body, Integer> indexes;
+  private int[] contactCounts;
+  private int[] groundContactCounts;
+
+  private ContactTracker() {
+    indexes = new IdentityHashMap<>();
+    contactCounts = new int[INITIAL_CAPACITY];
+    groundContactCounts = new int[INITIAL_CAPACITY];
+  }
+
+  public static ContactTracker of(World<Body> world) {
+    for (ContactListener<Body> listener : world.getContactListeners()) {
+      if (listener instanceof ContactTracker contactTracker) {
+        return contactTracker;
+      }
+    }
+    ContactTracker contactTracker = new ContactTracker();
+    world.addContactListener(contactTracker);
+    return contactTracker;
+  }
+
+  @Override
+  public void begin(ContactCollisionData<Body> collision, Contact contact) {
+    update(collision.getBody1(), collision.getBody2(), 1);
+    update(collision.getBody2(), collision.getBody1(), 1);
+  }
+
+  @Override
+  public void destroyed(ContactCollisionData<Body> collision, Contact contact) {
+    update(collision.getBody1(), collision.getBody2(), -1);
+    update(collision.getBody2(), collision.getBody1(), -1);
+  }
+
+  @Override
+  public void end(ContactCollisionData<Body> collision, Contact contact) {
+    update(collision.getBody1(), collision.getBody2(), -1);
+    update(collision.getBody2(), collision.getBody1(), -1);
+  }
+
+  public boolean isTouching(int index) {
+    return contactCounts[index] > 0;
+  }
+
+  public boolean isTouchingGround(int index) {
+    return groundContactCounts[index] > 0;
+  }
+
+  public int register(Body body) {
+    Integer index = indexes.get(body);
+    if (index == null) {
+      index = indexes.size();
+      indexes.put(body, index);
+      if (index >= contactCounts.length) {
+        contactCounts = Arrays.copyOf(contactCounts, contactCounts.length * 2);
+        groundContactCounts = Arrays.copyOf(groundContactCounts, groundContactCounts.length * 2);
+      }
+    }
+    contactCounts[index] = 0;
+    groundContactCounts[index] = 0;
+    return index;
+  }
+
+  private void update(Body body, Body otherBody, int delta) {
+    Integer index = indexes.get(body);
+    if (index == null) {
+      return;
+    }
+    Object otherUserData = otherBody.getUserData();
+    if (otherUserData == null || otherUserData != body.getUserData()) {
+      contactCounts[index] = Math.max(0, contactCounts[index] + delta);
+    }
+    if (Ground.class.equals(otherUserData)) {
+      groundContactCounts[index] = Math.max(0, groundContactCounts[index] + delta);
+    }
+  }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.core.objects;
+
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.world.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A lightweight alternative to a dyn4j world for voxel-based soft robots. Each voxel is modeled by 4 point masses
+ * (particles) at its vertices, shared with adjacent voxels, connected by damped springs whose rest length follows the
+ * force applied to the voxel. Particles collide only with a ground polyline. Time is advanced with a semi-implicit
+ * Euler integration, possibly in more substeps per step. Particles and springs are stored as arrays of primitives.
+ * <p>
+ * Particles do not collide with each other: voxels cannot interpenetrate only as long as springs prevent it. Sensors
+ * which query the dyn4j bodies of the voxels, rather than their geometric state, do not work in this world.
+ */
+public class MassSpringWorld {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final double[] groundXs;
+  private final double[] groundYs;
+  private final int nOfSubsteps;
+  private final double gravity;
+
+  private int nOfParticles;
+  private double[] xs;
+  private double[] ys;
+  private double[] vxs;
+  private double[] vys;
+  private double[] fxs;
+  private double[] fys;
+  private double[] masses;
+  private double[] dampings;
+  private double[] frictions;
+  private double[] restitutions;
+  private boolean[] touchingGround;
+
+  private int nOfSprings;
+  private int[] springParticles1;
+  private int[] springParticles2;
+  private int[] springVoxels;
+  private double[] springMinLengths;
+  private double[] springRestLengths;
+  private double[] springMaxLengths;
+  private double[] springStiffnesses;
+  private double[] springDampings;
+  private double[] springCurrentRestLengths;
+
+  private final List<Voxel> voxels;
+  private final List<int[]> voxelParticles;
+
+  public MassSpringWorld(double[] groundXs, double[] groundYs, int nOfSubsteps) {
+    if (groundXs.length != groundYs.length) {
+      throw new IllegalArgumentException("xs[] and ys[] must have the same length");
+    }
+    if (nOfSubsteps < 1) {
+      throw new IllegalArgumentException(String.format("Wrong number of substeps: %d", nOfSubsteps));
+    }
+    this.groundXs = groundXs;
+    this.groundYs = groundYs;
+    this.nOfSubsteps = nOfSubsteps;
+    gravity = World.EARTH_GRAVITY.y;
+    xs = new double[INITIAL_CAPACITY];
+    ys = new double[INITIAL_CAPACITY];
+    vxs = new double[INITIAL_CAPACITY];
+    vys = new double[INITIAL_CAPACITY];
+    masses = new double[INITIAL_CAPACITY];
+    dampings = new double[INITIAL_CAPACITY];
+    frictions = new double[INITIAL_CAPACITY];
+    restitutions = new double[INITIAL_CAPACITY];
+    touchingGround = new boolean[INITIAL_CAPACITY];
+    springParticles1 = new int[INITIAL_CAPACITY];
+    springParticles2 = new int[INITIAL_CAPACITY];
+    springVoxels = new int[INITIAL_CAPACITY];
+    springMinLengths = new double[INITIAL_CAPACITY];
+    springRestLengths = new double[INITIAL_CAPACITY];
+    springMaxLengths = new double[INITIAL_CAPACITY];
+    springStiffnesses = new double[INITIAL_CAPACITY];
+    springDampings = new double[INITIAL_CAPACITY];
+    voxels = new ArrayList<>();
+    voxelParticles = new ArrayList<>();
+  }
+
+  //the contact of a particle with the ground mixes the properties of the two as dyn4j does for fixtures
+  public void addMass(int particle, double mass, double damping, double friction, double restitution) {
+    masses[particle] = masses[particle] + mass;
+    dampings[particle] = damping;
+    frictions[particle] = Math.sqrt(friction * BodyFixture.DEFAULT_FRICTION);
+    restitutions[particle] = Math.max(restitution, BodyFixture.DEFAULT_RESTITUTION);
+  }
+
+  public int addParticle(double x, double y) {
+    if (nOfParticles == xs.length) {
+      int capacity = xs.length * 2;
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      vxs = Arrays.copyOf(vxs, capacity);
+      vys = Arrays.copyOf(vys, capacity);
+      masses = Arrays.copyOf(masses, capacity);
+      dampings = Arrays.copyOf(dampings, capacity);
+      frictions = Arrays.copyOf(frictions, capacity);
+      restitutions = Arrays.copyOf(restitutions, capacity);
+      touchingGround = Arrays.copyOf(touchingGround, capacity);
+    }
+    xs[nOfParticles] = x;
+    ys[nOfParticles] = y;
+    nOfParticles = nOfParticles + 1;
+    return nOfParticles - 1;
+  }
+
+  //the rest length of the spring goes from restLength towards minLength or maxLength with the force applied to voxel
+  public void addSpring(
+      Voxel voxel,
+      int particle1,
+      int particle2,
+      double minLength,
+      double restLength,
+      double maxLength,
+      double stiffness,
+      double damping
+  ) {
+    int voxelIndex = voxels.indexOf(voxel);
+    if (voxelIndex < 0) {
+      throw new IllegalArgumentException("Cannot add a spring of a voxel which is not in the world");
+    }
+    if (nOfSprings == springParticles1.length) {
+      int capacity = springParticles1.length * 2;
+      springParticles1 = Arrays.copyOf(springParticles1, capacity);
+      springParticles2 = Arrays.copyOf(springParticles2, capacity);
+      springVoxels = Arrays.copyOf(springVoxels, capacity);
+      springMinLengths = Arrays.copyOf(springMinLengths, capacity);
+      springRestLengths = Arrays.copyOf(springRestLengths, capacity);
+      springMaxLengths = Arrays.copyOf(springMaxLengths, capacity);
+      springStiffnesses = Arrays.copyOf(springStiffnesses, capacity);
+      springDampings = Arrays.copyOf(springDampings, capacity);
+    }
+    springParticles1[nOfSprings] = particle1;
+    springParticles2[nOfSprings] = particle2;
+    springVoxels[nOfSprings] = voxelIndex;
+    springMinLengths[nOfSprings] = minLength;
+    springRestLengths[nOfSprings] = restLength;
+    springMaxLengths[nOfSprings] = maxLength;
+    springStiffnesses[nOfSprings] = stiffness;
+    springDampings[nOfSprings] = damping;
+    nOfSprings = nOfSprings + 1;
+  }
+
+  //vertex particles are in the order NW, NE, SE, SW
+  public void addVoxel(Voxel voxel, int[] vertexParticles) {
+    voxels.add(voxel);
+    voxelParticles.add(vertexParticles);
+  }
+
+  private void collideWithGround(int p) {
+    int segment = Arrays.binarySearch(groundXs, xs[p]);
+    if (segment < 0) {
+      segment = -segment - 2;
+    }
+    if (segment < 0 || segment >= groundXs.length - 1) {
+      return;
+    }
+    double dX = groundXs[segment + 1] - groundXs[segment];
+    double dY = groundYs[segment + 1] - groundYs[segment];
+    double groundY = groundYs[segment] + (xs[p] - groundXs[segment]) * dY / dX;
+    if (ys[p] > groundY) {
+      return;
+    }
+    touchingGround[p] = true;
+    //normal of the segment, pointing up
+    double length = Math.sqrt(dX * dX + dY * dY);
+    double nX = -dY / length;
+    double nY = dX / length;
+    //move the particle out of the ground, along the normal
+    double depth = (groundY - ys[p]) * nY;
+    xs[p] = xs[p] + depth * nX;
+    ys[p] = ys[p] + depth * nY;
+    //bounce on the normal component, apply Coulomb friction on the tangential one
+    double vN = vxs[p] * nX + vys[p] * nY;
+    if (vN >= 0) {
+      return;
+    }
+    double vTX = vxs[p] - vN * nX;
+    double vTY = vys[p] - vN * nY;
+    double vT = Math.sqrt(vTX * vTX + vTY * vTY);
+    double tangentialScale = vT > 0 ? Math.max(0d, 1d - frictions[p] * (1d + restitutions[p]) * -vN / vT) : 0d;
+    vxs[p] = vTX * tangentialScale - restitutions[p] * vN * nX;
+    vys[p] = vTY * tangentialScale - restitutions[p] * vN * nY;
+  }
+
+  public void step(double dT) {
+    double h = dT / (double) nOfSubsteps;
+    Arrays.fill(touchingGround, 0, nOfParticles, false);
+    //rest lengths follow the forces applied to voxels in the previous step
+    if (fxs == null || fxs.length < nOfParticles) {
+      fxs = new double[nOfParticles];
+      fys = new double[nOfParticles];
+    }
+    if (springCurrentRestLengths == null || springCurrentRestLengths.length < nOfSprings) {
+      springCurrentRestLengths = new double[nOfSprings];
+    }
+    double[] restLengths = springCurrentRestLengths;
+    for (int s = 0; s < nOfSprings; s++) {
+      double f = voxels.get(springVoxels[s]).getLastAppliedForce();
+      if (f >= 0) {
+        restLengths[s] = springRestLengths[s] - (springRestLengths[s] - springMinLengths[s]) * f;
+      } else {
+        restLengths[s] = springRestLengths[s] + (springMaxLengths[s] - springRestLengths[s]) * -f;
+      }
+    }
+    for (int k = 0; k < nOfSubsteps; k++) {
+      //gravity
+      for (int p = 0; p < nOfParticles; p++) {
+        fxs[p] = 0d;
+        fys[p] = masses[p] * gravity;
+      }
+      //springs
+      for (int s = 0; s < nOfSprings; s++) {
+        int p1 = springParticles1[s];
+        int p2 = springParticles2[s];
+        double dX = xs[p2] - xs[p1];
+        double dY = ys[p2] - ys[p1];
+        double length = Math.sqrt(dX * dX + dY * dY);
+        if (length == 0d) {
+          continue;
+        }
+        dX = dX / length;
+        dY = dY / length;
+        double relativeV = (vxs[p2] - vxs[p1]) * dX + (vys[p2] - vys[p1]) * dY;
+        double f = springStiffnesses[s] * (length - restLengths[s]) + springDampings[s] * relativeV;
+        fxs[p1] = fxs[p1] + f * dX;
+        fys[p1] = fys[p1] + f * dY;
+        fxs[p2] = fxs[p2] - f * dX;
+        fys[p2] = fys[p2] - f * dY;
+      }
+      //integrate, with damping as in dyn4j
+      for (int p = 0; p < nOfParticles; p++) {
+        double damping = 1d / (1d + h * dampings[p]);
+        vxs[p] = (vxs[p] + fxs[p] / masses[p] * h) * damping;
+        vys[p] = (vys[p] + fys[p] / masses[p] * h) * damping;
+        xs[p] = xs[p] + vxs[p] * h;
+        ys[p] = ys[p] + vys[p] * h;
+        collideWithGround(p);
+      }
+    }
+    updateVoxels();
+  }
+
+  public void updateVoxels() {
+    for (int i = 0; i < voxels.size(); i++) {
+      int[] particles = voxelParticles.get(i);
+      boolean touching = false;
+      for (int particle : particles) {
+        touching = touching || touchingGround[particle];
+      }
+      voxels.get(i).updateState(xs, ys, vxs, vys, particles);
+      voxels.get(i).setExternalContacts(touching, touching);
+    }
+  }
+
+}
@@ -39,6 +39,7 @@ import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -53,6 +54,8 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
   private final Grid<Voxel> voxels;
 
   private transient List<Joint<Body>> joints;
+  private transient double[] sensorReadings;
+  private transient double[] voxelStates;
 
   @JsonCreator
   public Robot(
@@ -72,7 +75,23 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
 
   @Override
   public void act(final double t) {
-    voxels.values().stream().filter(Objects::nonNull).forEach(v -> v.act(t));
+    //update the geometric state of all the voxels before any of them (or the controller) reads it
+    for (Voxel voxel : voxels.values()) {
+      if (voxel != null) {
+        voxel.updateState();
+      }
+    }
+    control(t);
+  }
+
+  //senses and controls, with the geometric state of the voxels as it is
+  public void control(final double t) {
+    boolean sensing = controller.needsSensorReadings(t);
+    for (Voxel voxel : voxels.values()) {
+      if (voxel != null) {
+        voxel.act(t, sensing);
+      }
+    }
     controller.control(t, voxels);
   }
 
@@ -88,6 +107,36 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
     }
   }
 
+  //voxels share the particles at their common vertices
+  public void addTo(MassSpringWorld world) {
+    int[] vertexParticles = new int[(voxels.getW() + 1) * (voxels.getH() + 1)];
+    Arrays.fill(vertexParticles, -1);
+    for (int gx = 0; gx < voxels.getW(); gx++) {
+      for (int gy = 0; gy < voxels.getH(); gy++) {
+        Voxel voxel = voxels.get(gx, gy);
+        if (voxel != null) {
+          //vertices NW, NE, SE, SW, with y growing upwards
+          int[] vertexIndexes = new int[]{
+              gx + (gy + 1) * (voxels.getW() + 1),
+              gx + 1 + (gy + 1) * (voxels.getW() + 1),
+              gx + 1 + gy * (voxels.getW() + 1),
+              gx + gy * (voxels.getW() + 1)
+          };
+          Point2[] vertices = voxel.getVoxelPoly().vertexes();
+          int[] particles = new int[4];
+          for (int i = 0; i < 4; i++) {
+            if (vertexParticles[vertexIndexes[i]] < 0) {
+              vertexParticles[vertexIndexes[i]] = world.addParticle(vertices[i].x(), vertices[i].y());
+            }
+            particles[i] = vertexParticles[vertexIndexes[i]];
+          }
+          voxel.addTo(world, particles);
+        }
+      }
+    }
+    world.updateVoxels();
+  }
+
   private void assemble() {
     joints = new ArrayList<>();
     //translate voxels
@@ -113,15 +162,38 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
     }
   }
 
-  @SuppressWarnings("OptionalGetWithoutIsPresent")
   @Override
   public BoundingBox boundingBox() {
-    return voxels.values().stream().filter(Objects::nonNull).map(Voxel::boundingBox).reduce(BoundingBox::largest).get();
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (Voxel voxel : voxels.values()) {
+      if (voxel != null) {
+        BoundingBox voxelBoundingBox = voxel.boundingBox();
+        minX = Math.min(minX, voxelBoundingBox.min().x());
+        maxX = Math.max(maxX, voxelBoundingBox.max().x());
+        minY = Math.min(minY, voxelBoundingBox.min().y());
+        maxY = Math.max(maxY, voxelBoundingBox.max().y());
+      }
+    }
+    return BoundingBox.of(minX, minY, maxX, maxY);
   }
 
   @Override
   public Point2 center() {
-    return Point2.average(voxels.values().stream().filter(Objects::nonNull).map(Voxel::center).toArray(Point2[]::new));
+    double cx = 0;
+    double cy = 0;
+    double n = 0;
+    for (Voxel voxel : voxels.values()) {
+      if (voxel != null) {
+        Point2 center = voxel.center();
+        cx = cx + center.x();
+        cy = cy + center.y();
+        n = n + 1;
+      }
+    }
+    return Point2.of(cx / n, cy / n);
   }
 
   @Override
@@ -151,6 +223,34 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
     return voxels;
   }
 
+  public double[] getSensorReadings() {
+    return sensorReadings;
+  }
+
+  //makes the sensors of all the voxels write their readings contiguously, in voxel order, in one robot-wide buffer
+  private void bindSensorReadings() {
+    sensorReadings = new double[voxels.values().stream().filter(Objects::nonNull).mapToInt(Voxel::nOfSensorReadings).sum()];
+    int offset = 0;
+    for (Voxel voxel : voxels.values()) {
+      if (voxel != null) {
+        voxel.setSensorReadingsBuffer(sensorReadings, offset);
+        offset = offset + voxel.nOfSensorReadings();
+      }
+    }
+  }
+
+  //makes all the voxels keep their geometric state contiguously, in voxel order, in one robot-wide array
+  private void bindVoxelStates() {
+    voxelStates = new double[(int) voxels.values().stream().filter(Objects::nonNull).count() * Voxel.STATE_SIZE];
+    int offset = 0;
+    for (Voxel voxel : voxels.values()) {
+      if (voxel != null) {
+        voxel.setStateBuffer(voxelStates, offset);
+        offset = offset + Voxel.STATE_SIZE;
+      }
+    }
+  }
+
   @Serial
   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
     ois.defaultReadObject();
@@ -161,6 +261,8 @@ public class Robot implements Actionable, Serializable, WorldObject, Snapshottab
   public void reset() {
     voxels.values().stream().filter(Objects::nonNull).forEach(Voxel::reset);
     assemble();
+    bindSensorReadings();
+    bindVoxelStates();
     controller.reset();
   }
 
@@ -17,17 +17,16 @@
 package it.units.erallab.hmsrobots.core.objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.units.erallab.hmsrobots.core.Actionable;
 import it.units.erallab.hmsrobots.core.geometry.*;
 import it.units.erallab.hmsrobots.core.sensors.Sensor;
-import it.units.erallab.hmsrobots.core.sensors.Touch;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
 import it.units.erallab.hmsrobots.util.DoubleRange;
-import org.apache.commons.lang3.ArrayUtils;
 import org.dyn4j.collision.Filter;
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.joint.DistanceJoint;
@@ -43,6 +42,7 @@ import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -66,6 +66,12 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   public static final DoubleRange AREA_RATIO_PASSIVE_RANGE = DoubleRange.of(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
   public static final DoubleRange AREA_RATIO_ACTIVE_RANGE = DoubleRange.of(0.8, 1.2);
   public static final EnumSet<SpringScaffolding> SPRING_SCAFFOLDINGS = EnumSet.allOf(SpringScaffolding.class);
+  //layout of the geometric state: 4 vertices (x, y), center (x, y), linear velocity (x, y), angle, area
+  public static final int STATE_SIZE = 14;
+  private static final int STATE_CENTER = 8;
+  private static final int STATE_VELOCITY = 10;
+  private static final int STATE_ANGLE = 12;
+  private static final int STATE_AREA = 13;
   @JsonProperty
   protected final double springF;
   @JsonProperty
@@ -93,12 +99,21 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   @JsonProperty
   private final List<Sensor> sensors;
 
+  private transient double[] sensorReadingsBuffer;
+  private transient int sensorReadingsOffset;
   protected transient Body[] vertexBodies;
   protected transient List<DistanceJoint<Body>> springJoints;
   private transient World<Body> world;
+  private transient ContactTracker contactTracker;
+  private transient int[] vertexBodyIndexes;
   private transient double areaRatioEnergy;
   private transient double controlEnergy;
   private transient double lastAppliedForce;
+  private transient double[] stateBuffer;
+  private transient int stateOffset;
+  private transient boolean stateValid;
+  private transient boolean externalTouching;
+  private transient boolean externalTouchingGround;
 
   @JsonCreator
   public Voxel(
@@ -139,6 +154,7 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
       ));
     }
     assemble();
+    setSensorReadingsBuffer(new double[nOfSensorReadings()], 0);
   }
 
   public Voxel(List<Sensor> sensors) {
@@ -175,11 +191,15 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
 
   }
 
-  public static class RobotFilter implements Filter {
+  //bodies of the same robot collide with each other, bodies of different robots do not
+  public record RobotFilter(Object robot) implements Filter {
 
     @Override
     public boolean isAllowed(Filter filter) {
-      return true;
+      if (!(filter instanceof RobotFilter)) {
+        return true;
+      }
+      return robot == ((RobotFilter) filter).robot;
     }
 
   }
@@ -196,10 +216,19 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
 
   @Override
   public void act(double t) {
+    updateState();
+    act(t, true);
+  }
+
+  public void act(double t, boolean sensing) {
     double areaRatio = getAreaRatio();
     areaRatioEnergy = areaRatioEnergy + areaRatio * areaRatio;
     controlEnergy = controlEnergy + lastAppliedForce * lastAppliedForce;
-    sensors.forEach(s -> s.act(t));
+    if (sensing) {
+      for (Sensor sensor : sensors) {
+        sensor.act(t);
+      }
+    }
   }
 
   @Override
@@ -213,14 +242,65 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
       }
     }
     this.world = world;
-    for (Body body : vertexBodies) {
-      world.addBody(body);
+    contactTracker = ContactTracker.of(world);
+    vertexBodyIndexes = new int[vertexBodies.length];
+    for (int i = 0; i < vertexBodies.length; i++) {
+      world.addBody(vertexBodies[i]);
+      vertexBodyIndexes[i] = contactTracker.register(vertexBodies[i]);
     }
     for (Joint<Body> joint : springJoints) {
       world.addJoint(joint);
     }
   }
 
+  //adds this voxel to a mass-spring world with the given particles as vertices (NW, NE, SE, SW): since particles are
+  //points, the side springs of the different scaffoldings join the same particles and are merged in one spring
+  public void addTo(MassSpringWorld world, int[] vertexParticles) {
+    world.addVoxel(this, vertexParticles);
+    double vertexMass = mass / 4d;
+    for (int particle : vertexParticles) {
+      world.addMass(particle, vertexMass, massLinearDamping, friction, restitution);
+    }
+    //as in dyn4j, stiffness and damping are given by frequency and damping ratio for the reduced mass of two vertices
+    double reducedMass = vertexMass / 2d;
+    double omega = 2d * Math.PI * springF;
+    double stiffness = reducedMass * omega * omega;
+    double damping = 2d * reducedMass * springD * omega;
+    double minSideLength = Math.sqrt(sideLength * sideLength * areaRatioActiveRange.min());
+    double maxSideLength = Math.sqrt(sideLength * sideLength * areaRatioActiveRange.max());
+    int nOfSideSprings = (springScaffoldings.contains(SpringScaffolding.SIDE_INTERNAL) ? 1 : 0) +
+        (springScaffoldings.contains(SpringScaffolding.SIDE_EXTERNAL) ? 1 : 0) +
+        (springScaffoldings.contains(SpringScaffolding.SIDE_CROSS) ? 2 : 0);
+    if (nOfSideSprings > 0) {
+      for (int i = 0; i < 4; i++) {
+        world.addSpring(
+            this,
+            vertexParticles[i],
+            vertexParticles[(i + 1) % 4],
+            minSideLength,
+            sideLength,
+            maxSideLength,
+            stiffness * nOfSideSprings,
+            damping * nOfSideSprings
+        );
+      }
+    }
+    if (springScaffoldings.contains(SpringScaffolding.CENTRAL_CROSS)) {
+      for (int i = 0; i < 2; i++) {
+        world.addSpring(
+            this,
+            vertexParticles[i],
+            vertexParticles[i + 2],
+            minSideLength * Math.sqrt(2d),
+            sideLength * Math.sqrt(2d),
+            maxSideLength * Math.sqrt(2d),
+            stiffness,
+            damping
+        );
+      }
+    }
+  }
+
   public void applyForce(double f) {
     if (Math.abs(f) > 1d) {
       f = Math.signum(f);
@@ -237,6 +317,9 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   }
 
   private void assemble() {
+    stateBuffer = new double[STATE_SIZE];
+    stateOffset = 0;
+    stateValid = false;
     //compute densities
     double massSideLength = sideLength * massSideLengthRatio;
     double density = (mass / 4) / (massSideLength * massSideLength);
@@ -476,49 +559,43 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
       joint.setDampingRatio(springD);
     }
     springJoints = Collections.unmodifiableList(allSpringJoints);
+    //new bodies are not tracked until added to a world
+    contactTracker = null;
+    externalTouching = false;
+    externalTouchingGround = false;
   }
 
   @Override
   public BoundingBox boundingBox() {
+    ensureState();
     double minX = Double.POSITIVE_INFINITY;
     double maxX = Double.NEGATIVE_INFINITY;
     double minY = Double.POSITIVE_INFINITY;
     double maxY = Double.NEGATIVE_INFINITY;
     for (int i = 0; i < 4; i++) {
-      Vector2 point = getIndexedVertex(i, 3 - i);
-      minX = Math.min(minX, point.x);
-      maxX = Math.max(maxX, point.x);
-      minY = Math.min(minY, point.y);
-      maxY = Math.max(maxY, point.y);
+      minX = Math.min(minX, stateBuffer[stateOffset + 2 * i]);
+      maxX = Math.max(maxX, stateBuffer[stateOffset + 2 * i]);
+      minY = Math.min(minY, stateBuffer[stateOffset + 2 * i + 1]);
+      maxY = Math.max(maxY, stateBuffer[stateOffset + 2 * i + 1]);
     }
     return BoundingBox.of(Point2.of(minX, minY), Point2.of(maxX, maxY));
   }
 
   @Override
   public Point2 center() {
-    double xc = 0d;
-    double yc = 0d;
-    for (Body vertex : vertexBodies) {
-      xc = xc + vertex.getWorldCenter().x;
-      yc = yc + vertex.getWorldCenter().y;
-    }
-    return Point2.of(xc / (double) vertexBodies.length, yc / (double) vertexBodies.length);
+    ensureState();
+    return Point2.of(stateBuffer[stateOffset + STATE_CENTER], stateBuffer[stateOffset + STATE_CENTER + 1]);
   }
 
   @Override
   public double area() {
-    return Poly.of(
-        Point2.of(getIndexedVertex(0, 3)),
-        Point2.of(getIndexedVertex(1, 2)),
-        Point2.of(getIndexedVertex(2, 1)),
-        Point2.of(getIndexedVertex(3, 0))
-    ).area();
+    ensureState();
+    return stateBuffer[stateOffset + STATE_AREA];
   }
 
   public double getAngle() {
-    Vector2 upSide = vertexBodies[1].getWorldCenter().copy().subtract(vertexBodies[0].getWorldCenter());
-    Vector2 downSide = vertexBodies[2].getWorldCenter().copy().subtract(vertexBodies[3].getWorldCenter());
-    return (upSide.getDirection() + downSide.getDirection()) / 2d;
+    ensureState();
+    return stateBuffer[stateOffset + STATE_ANGLE];
   }
 
   public double getAreaRatio() {
@@ -533,33 +610,56 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     return controlEnergy;
   }
 
-  private Vector2 getIndexedVertex(int i, int j) {
-    Transform t = vertexBodies[i].getTransform();
-    Rectangle rectangle = (Rectangle) vertexBodies[i].getFixture(0).getShape();
-    Vector2 tV = rectangle.getVertices()[j].copy();
-    t.transform(tV);
-    return tV;
-  }
-
   public double getLastAppliedForce() {
     return lastAppliedForce;
   }
 
   public Point2 getLinearVelocity() {
-    double x = 0d;
-    double y = 0d;
-    for (Body vertex : vertexBodies) {
-      x = x + vertex.getLinearVelocity().x;
-      y = y + vertex.getLinearVelocity().y;
-    }
-    return Point2.of(x / (double) vertexBodies.length, y / (double) vertexBodies.length);
+    ensureState();
+    return Point2.of(stateBuffer[stateOffset + STATE_VELOCITY], stateBuffer[stateOffset + STATE_VELOCITY + 1]);
   }
 
   public double[] getSensorReadings() {
-    return sensors.stream()
-        .map(Sensor::getReadings)
-        .reduce(ArrayUtils::addAll)
-        .orElse(new double[sensors.stream().mapToInt(s -> s.getDomains().length).sum()]);
+    return Arrays.copyOfRange(sensorReadingsBuffer, sensorReadingsOffset, sensorReadingsOffset + nOfSensorReadings());
+  }
+
+  //the buffer is shared with the other voxels of the robot: readings of this voxel start at getSensorReadingsOffset()
+  public double[] getSensorReadingsBuffer() {
+    return sensorReadingsBuffer;
+  }
+
+  public int getSensorReadingsOffset() {
+    return sensorReadingsOffset;
+  }
+
+  public int nOfSensorReadings() {
+    int n = 0;
+    for (Sensor sensor : sensors) {
+      n = n + sensor.getDomains().length;
+    }
+    return n;
+  }
+
+  //the buffer is shared with the other voxels of the robot: the state of this voxel starts at offset
+  public void setStateBuffer(double[] buffer, int offset) {
+    stateBuffer = buffer;
+    stateOffset = offset;
+    stateValid = false;
+  }
+
+  //contacts of a voxel which is not in a dyn4j world, as computed by whatever simulates it
+  public void setExternalContacts(boolean touching, boolean touchingGround) {
+    externalTouching = touching;
+    externalTouchingGround = touchingGround;
+  }
+
+  public void setSensorReadingsBuffer(double[] buffer, int offset) {
+    sensorReadingsBuffer = buffer;
+    sensorReadingsOffset = offset;
+    for (Sensor sensor : sensors) {
+      sensor.setReadingsBuffer(buffer, offset);
+      offset = offset + sensor.getDomains().length;
+    }
   }
 
   public List<Sensor> getSensors() {
@@ -593,21 +693,21 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     return vertexBodies;
   }
 
-  protected List<Point2> getVertices() {
-    return List.of(
-        Point2.of(getIndexedVertex(0, 3)),
-        Point2.of(getIndexedVertex(1, 2)),
-        Point2.of(getIndexedVertex(2, 1)),
-        Point2.of(getIndexedVertex(3, 0))
-    );
+  protected Point2[] getVertices() {
+    ensureState();
+    Point2[] vertices = new Point2[4];
+    for (int i = 0; i < 4; i++) {
+      vertices[i] = Point2.of(stateBuffer[stateOffset + 2 * i], stateBuffer[stateOffset + 2 * i + 1]);
+    }
+    return vertices;
   }
 
   public VoxelPoly getVoxelPoly() {
     return new VoxelPoly(
-        Poly.of(getVertices().toArray(Point2[]::new)),
+        Poly.of(getVertices()),
         getAngle(),
         getLinearVelocity(),
-        Touch.isTouchingGround(this),
+        isTouchingGround(),
         getAreaRatio(),
         getAreaRatioEnergy(),
         getLastAppliedForce(),
@@ -619,10 +719,37 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     return world;
   }
 
+  @JsonIgnore
+  public boolean isTouching() {
+    if (contactTracker == null) {
+      return externalTouching;
+    }
+    for (int index : vertexBodyIndexes) {
+      if (contactTracker.isTouching(index)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @JsonIgnore
+  public boolean isTouchingGround() {
+    if (contactTracker == null) {
+      return externalTouchingGround;
+    }
+    for (int index : vertexBodyIndexes) {
+      if (contactTracker.isTouchingGround(index)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Serial
   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
     ois.defaultReadObject();
     assemble();
+    setSensorReadingsBuffer(new double[nOfSensorReadings()], 0);
   }
 
   private Poly rectangleToPoly(Body body) {
@@ -651,7 +778,7 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
   }
 
   public void setOwner(Robot robot) {
-    Filter filter = new RobotFilter();
+    Filter filter = new RobotFilter(robot);
     for (Body vertexBody : vertexBodies) {
       vertexBody.setUserData(robot);
       vertexBody.getFixture(0).setFilter(filter);
@@ -681,6 +808,86 @@ public class Voxel implements Actionable, Serializable, Snapshottable, WorldObje
     for (Body body : vertexBodies) {
       body.translate(v);
     }
+    stateValid = false;
+  }
+
+  private void ensureState() {
+    if (!stateValid) {
+      updateState();
+    }
+  }
+
+  //reads the vertex bodies once and stores the geometric state, which is then used until the next update
+  public void updateState() {
+    double cx = 0d;
+    double cy = 0d;
+    double vx = 0d;
+    double vy = 0d;
+    for (int i = 0; i < vertexBodies.length; i++) {
+      Body body = vertexBodies[i];
+      Transform t = body.getTransform();
+      Vector2 localCenter = body.getLocalCenter();
+      Vector2 vertex = ((Rectangle) body.getFixture(0).getShape()).getVertices()[3 - i];
+      stateBuffer[stateOffset + 2 * i] = t.getTransformedX(vertex);
+      stateBuffer[stateOffset + 2 * i + 1] = t.getTransformedY(vertex);
+      cx = cx + t.getTransformedX(localCenter);
+      cy = cy + t.getTransformedY(localCenter);
+      vx = vx + body.getLinearVelocity().x;
+      vy = vy + body.getLinearVelocity().y;
+    }
+    stateBuffer[stateOffset + STATE_CENTER] = cx / (double) vertexBodies.length;
+    stateBuffer[stateOffset + STATE_CENTER + 1] = cy / (double) vertexBodies.length;
+    stateBuffer[stateOffset + STATE_VELOCITY] = vx / (double) vertexBodies.length;
+    stateBuffer[stateOffset + STATE_VELOCITY + 1] = vy / (double) vertexBodies.length;
+    //angle as the average direction of the up and down sides, joining the centers of the vertex bodies
+    Transform t0 = vertexBodies[0].getTransform();
+    Transform t1 = vertexBodies[1].getTransform();
+    Transform t2 = vertexBodies[2].getTransform();
+    Transform t3 = vertexBodies[3].getTransform();
+    double upX = t1.getTransformedX(vertexBodies[1].getLocalCenter()) - t0.getTransformedX(vertexBodies[0].getLocalCenter());
+    double upY = t1.getTransformedY(vertexBodies[1].getLocalCenter()) - t0.getTransformedY(vertexBodies[0].getLocalCenter());
+    double downX = t2.getTransformedX(vertexBodies[2].getLocalCenter()) - t3.getTransformedX(vertexBodies[3].getLocalCenter());
+    double downY = t2.getTransformedY(vertexBodies[2].getLocalCenter()) - t3.getTransformedY(vertexBodies[3].getLocalCenter());
+    stateBuffer[stateOffset + STATE_ANGLE] = (Math.atan2(upY, upX) + Math.atan2(downY, downX)) / 2d;
+    //shoelace area of the polygon of the vertices
+    double a = 0d;
+    for (int i = 0; i < 4; i++) {
+      a = a + stateBuffer[stateOffset + 2 * i] * (stateBuffer[stateOffset + 2 * ((i + 1) % 4) + 1] - stateBuffer[stateOffset + 2 * ((i + 3) % 4) + 1]);
+    }
+    stateBuffer[stateOffset + STATE_AREA] = 0.5d * Math.abs(a);
+    stateValid = true;
+  }
+
+  //sets the geometric state from vertices (NW, NE, SE, SW) which are point masses, as in a mass-spring world
+  public void updateState(double[] xs, double[] ys, double[] vxs, double[] vys, int[] vertexParticles) {
+    double cx = 0d;
+    double cy = 0d;
+    double vx = 0d;
+    double vy = 0d;
+    for (int i = 0; i < 4; i++) {
+      int p = vertexParticles[i];
+      stateBuffer[stateOffset + 2 * i] = xs[p];
+      stateBuffer[stateOffset + 2 * i + 1] = ys[p];
+      cx = cx + xs[p];
+      cy = cy + ys[p];
+      vx = vx + vxs[p];
+      vy = vy + vys[p];
+    }
+    stateBuffer[stateOffset + STATE_CENTER] = cx / 4d;
+    stateBuffer[stateOffset + STATE_CENTER + 1] = cy / 4d;
+    stateBuffer[stateOffset + STATE_VELOCITY] = vx / 4d;
+    stateBuffer[stateOffset + STATE_VELOCITY + 1] = vy / 4d;
+    double upX = xs[vertexParticles[1]] - xs[vertexParticles[0]];
+    double upY = ys[vertexParticles[1]] - ys[vertexParticles[0]];
+    double downX = xs[vertexParticles[2]] - xs[vertexParticles[3]];
+    double downY = ys[vertexParticles[2]] - ys[vertexParticles[3]];
+    stateBuffer[stateOffset + STATE_ANGLE] = (Math.atan2(upY, upX) + Math.atan2(downY, downX)) / 2d;
+    double a = 0d;
+    for (int i = 0; i < 4; i++) {
+      a = a + stateBuffer[stateOffset + 2 * i] * (stateBuffer[stateOffset + 2 * ((i + 1) % 4) + 1] - stateBuffer[stateOffset + 2 * ((i + 3) % 4) + 1]);
+    }
+    stateBuffer[stateOffset + STATE_AREA] = 0.5d * Math.abs(a);
+    stateValid = true;
   }
 
 }
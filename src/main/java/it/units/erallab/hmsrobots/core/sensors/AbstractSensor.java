@@ -22,6 +22,9 @@ import it.units.erallab.hmsrobots.core.snapshots.ScopedReadings;
 import it.units.erallab.hmsrobots.core.snapshots.Snapshot;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -31,17 +34,29 @@ import java.util.Arrays;
 public abstract class AbstractSensor implements Sensor, Serializable {
   protected final DoubleRange[] domains;
   protected Voxel voxel;
-  protected double[] readings;
+  protected transient double[] readings;
+  protected transient int readingsOffset;
 
   public AbstractSensor(DoubleRange[] domains) {
     this.domains = domains;
+    readings = new double[domains.length];
   }
 
-  protected abstract double[] sense(double t);
+  //subclasses override at least one of the two sense() methods: the array-returning one is kept as an adapter
+  protected double[] sense(double t) {
+    double[] values = new double[domains.length];
+    sense(t, values, 0);
+    return values;
+  }
+
+  protected void sense(double t, double[] out, int offset) {
+    double[] values = sense(t);
+    System.arraycopy(values, 0, out, offset, values.length);
+  }
 
   @Override
   public void act(double t) {
-    readings = sense(t);
+    sense(t, readings, readingsOffset);
   }
 
   @Override
@@ -51,17 +66,33 @@ public abstract class AbstractSensor implements Sensor, Serializable {
 
   @Override
   public double[] getReadings() {
-    return readings;
+    if (readingsOffset == 0 && readings.length == domains.length) {
+      return readings;
+    }
+    return Arrays.copyOfRange(readings, readingsOffset, readingsOffset + domains.length);
+  }
+
+  @Override
+  public void setReadingsBuffer(double[] buffer, int offset) {
+    readings = buffer;
+    readingsOffset = offset;
   }
 
   @Override
   public Snapshot getSnapshot() {
     return new Snapshot(new ScopedReadings(
-        Arrays.copyOf(readings, readings.length),
+        Arrays.copyOfRange(readings, readingsOffset, readingsOffset + domains.length),
         Arrays.copyOf(domains, domains.length)
     ), getClass());
   }
 
+  @Serial
+  private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
+    ois.defaultReadObject();
+    readings = new double[domains.length];
+    readingsOffset = 0;
+  }
+
   public Voxel getVoxel() {
     return voxel;
   }
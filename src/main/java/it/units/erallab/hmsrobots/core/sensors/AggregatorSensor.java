@@ -20,6 +20,8 @@ package it.units.erallab.hmsrobots.core.sensors;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.TreeMap;
 
 /**
@@ -29,19 +31,22 @@ public abstract class AggregatorSensor extends CompositeSensor {
   @JsonProperty
   protected final double interval;
   protected final TreeMap<Double, double[]> readings;
+  private final Deque<double[]> spareReadings;
 
   public AggregatorSensor(DoubleRange[] domains, Sensor sensor, double interval) {
     super(domains, sensor);
     this.interval = interval;
     readings = new TreeMap<>();
+    spareReadings = new ArrayDeque<>();
     reset();
   }
 
-  protected abstract double[] aggregate(double t);
+  protected abstract void aggregate(double t, double[] out, int offset);
 
   @Override
   public void reset() {
     super.reset();
+    spareReadings.addAll(readings.values());
     readings.clear();
   }
 
@@ -54,15 +59,24 @@ public abstract class AggregatorSensor extends CompositeSensor {
   }
 
   @Override
-  protected double[] sense(double t) {
+  protected void sense(double t, double[] out, int offset) {
+    //the inner readings are copied, since sensors reuse their readings buffer
     double[] currentReadings = sensor.getReadings();
-    readings.put(t, currentReadings);
-    double t0 = readings.firstKey();
-    while (t0 < (t - interval)) {
-      readings.remove(t0);
-      t0 = readings.firstKey();
+    double[] storedReadings = spareReadings.isEmpty() ? new double[currentReadings.length] : spareReadings.pop();
+    System.arraycopy(currentReadings, 0, storedReadings, 0, currentReadings.length);
+    double[] replacedReadings = readings.put(t, storedReadings);
+    if (replacedReadings != null) {
+      spareReadings.push(replacedReadings);
     }
-    return aggregate(t);
+    //readings older than the interval are removed, but when less than two readings are within the interval (e.g., when
+    //sampled less often than the interval) the last one older than the interval is kept, so that the window still
+    //spans the interval
+    Double t1 = readings.higherKey(readings.firstKey());
+    while (t1 != null && readings.firstKey() < (t - interval) && (t1 < (t - interval) || readings.higherKey(t1) != null)) {
+      spareReadings.push(readings.pollFirstEntry().getValue());
+      t1 = readings.higherKey(t1);
+    }
+    aggregate(t, out, offset);
   }
 
 }
@@ -29,7 +29,7 @@ public class Angle extends AbstractSensor {
   }
 
   @Override
-  protected double[] sense(double t) {
-    return new double[]{voxel.getAngle()};
+  protected void sense(double t, double[] out, int offset) {
+    out[offset] = voxel.getAngle();
   }
 }
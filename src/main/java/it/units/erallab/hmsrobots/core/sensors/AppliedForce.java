@@ -28,8 +28,8 @@ public class AppliedForce extends AbstractSensor {
   }
 
   @Override
-  protected double[] sense(double t) {
-    return new double[]{voxel.getLastAppliedForce()};
+  protected void sense(double t, double[] out, int offset) {
+    out[offset] = voxel.getLastAppliedForce();
 
   }
 }
@@ -30,8 +30,8 @@ public class AreaRatio extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
-    return new double[]{voxel.getAreaRatio()};
+  public void sense(double t, double[] out, int offset) {
+    out[offset] = voxel.getAreaRatio();
   }
 
 }
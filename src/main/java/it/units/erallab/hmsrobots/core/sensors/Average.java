@@ -31,17 +31,19 @@ public class Average extends AggregatorSensor {
   }
 
   @Override
-  protected double[] aggregate(double t) {
-    double[] sums = new double[readings.firstEntry().getValue().length];
+  protected void aggregate(double t, double[] out, int offset) {
+    int n = domains.length;
+    for (int i = 0; i < n; i++) {
+      out[offset + i] = 0d;
+    }
     for (double[] pastReadings : readings.values()) {
-      for (int i = 0; i < sums.length; i++) {
-        sums[i] = sums[i] + pastReadings[i];
+      for (int i = 0; i < n; i++) {
+        out[offset + i] = out[offset + i] + pastReadings[i];
       }
     }
-    for (int i = 0; i < sums.length; i++) {
-      sums[i] = sums[i] / (double) readings.size();
+    for (int i = 0; i < n; i++) {
+      out[offset + i] = out[offset + i] / (double) readings.size();
     }
-    return sums;
   }
 
 }
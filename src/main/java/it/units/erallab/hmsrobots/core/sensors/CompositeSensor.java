@@ -40,7 +40,7 @@ public abstract class CompositeSensor extends AbstractSensor {
   @Override
   public void act(double t) {
     sensor.act(t);
-    readings = sense(t);
+    sense(t, readings, readingsOffset);
   }
 
   @Override
@@ -50,8 +50,8 @@ public class Constant extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
-    return values;
+  public void sense(double t, double[] out, int offset) {
+    System.arraycopy(values, 0, out, offset, values.length);
   }
 
   @Override
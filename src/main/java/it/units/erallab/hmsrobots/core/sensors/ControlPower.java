@@ -41,10 +41,10 @@ public class ControlPower extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
+  public void sense(double t, double[] out, int offset) {
     double power = voxel.getControlEnergy() / (t - lastT);
     lastT = t;
-    return new double[]{power};
+    out[offset] = power;
   }
 
   @Override
@@ -30,7 +30,7 @@ public class Crumpling extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
+  public void sense(double t, double[] out, int offset) {
     double c = 0d;
     for (int i = 0; i < voxel.getVertexBodies().length; i++) {
       for (int j = i + 1; j < voxel.getVertexBodies().length; j++) {
@@ -40,7 +40,7 @@ public class Crumpling extends AbstractSensor {
         }
       }
     }
-    return new double[]{2d * c / (double) (voxel.getVertexBodies().length * (voxel.getVertexBodies().length - 1))};
+    out[offset] = 2d * c / (double) (voxel.getVertexBodies().length * (voxel.getVertexBodies().length - 1));
   }
 
 }
@@ -20,7 +20,6 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 
-import java.util.Arrays;
 import java.util.Collections;
 
 public class DynamicNormalization extends AggregatorSensor {
@@ -39,23 +38,17 @@ public class DynamicNormalization extends AggregatorSensor {
   }
 
   @Override
-  protected double[] aggregate(double t) {
+  protected void aggregate(double t, double[] out, int offset) {
     double[] currentReadings = sensor.getReadings();
-    double[] mins = new double[currentReadings.length];
-    double[] maxs = new double[currentReadings.length];
-    Arrays.fill(mins, Double.POSITIVE_INFINITY);
-    Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
-    for (double[] pastReadings : readings.values()) {
-      for (int i = 0; i < currentReadings.length; i++) {
-        mins[i] = Math.min(mins[i], pastReadings[i]);
-        maxs[i] = Math.max(maxs[i], pastReadings[i]);
+    for (int i = 0; i < currentReadings.length; i++) {
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (double[] pastReadings : readings.values()) {
+        min = Math.min(min, pastReadings[i]);
+        max = Math.max(max, pastReadings[i]);
       }
+      out[offset + i] = Math.min(Math.max((currentReadings[i] - min) / (max - min), 0d), 1d);
     }
-    double[] values = new double[currentReadings.length];
-    for (int i = 0; i < values.length; i++) {
-      values[i] = Math.min(Math.max((currentReadings[i] - mins[i]) / (maxs[i] - mins[i]), 0d), 1d);
-    }
-    return values;
   }
 
 }
@@ -108,20 +108,26 @@ public class Lidar extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
-    return Arrays.stream(rayDirections).map(rayDirection -> {
-      Point2 center = voxel.center();
-      Ray ray = new Ray(new Vector2(center.x(), center.y()), rayDirection + voxel.getAngle());
+  public void sense(double t, double[] out, int offset) {
+    Point2 center = voxel.center();
+    Vector2 start = new Vector2(center.x(), center.y());
+    double angle = voxel.getAngle();
+    for (int i = 0; i < rayDirections.length; i++) {
+      Ray ray = new Ray(start, rayDirections[i] + angle);
       List<RaycastResult<Body, BodyFixture>> results = voxel.getWorld().raycast(ray, rayLength, FILTER);
-      return results.stream().mapToDouble(r -> r.getRaycast().getDistance()).min().orElse(rayLength);
-    }).toArray();
+      double distance = rayLength;
+      for (RaycastResult<Body, BodyFixture> result : results) {
+        distance = Math.min(distance, result.getRaycast().getDistance());
+      }
+      out[offset + i] = distance;
+    }
   }
 
   @Override
   public Snapshot getSnapshot() {
     return new Snapshot(
         new LidarReadings(
-            Arrays.copyOf(readings, readings.length),
+            Arrays.copyOfRange(readings, readingsOffset, readingsOffset + domains.length),
             Arrays.copyOf(domains, domains.length),
             voxel.getAngle(),
             Arrays.copyOf(rayDirections, rayDirections.length)
@@ -34,13 +34,8 @@ public class Malfunction extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
-    if (voxel instanceof BreakableVoxel) {
-      if (((BreakableVoxel) voxel).isBroken()) {
-        return new double[]{1d};
-      }
-    }
-    return new double[]{0d};
+  public void sense(double t, double[] out, int offset) {
+    out[offset] = (voxel instanceof BreakableVoxel breakableVoxel && breakableVoxel.isBroken()) ? 1d : 0d;
   }
 
 }
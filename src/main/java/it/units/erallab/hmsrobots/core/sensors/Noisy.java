@@ -54,12 +54,11 @@ public class Noisy extends CompositeSensor {
   }
 
   @Override
-  public double[] sense(double t) {
+  public void sense(double t, double[] out, int offset) {
     double[] values = sensor.getReadings();
     for (int i = 0; i < values.length; i++) {
-      values[i] = values[i] + random.nextGaussian() * sigmas[i];
+      out[offset + i] = values[i] + random.nextGaussian() * sigmas[i];
     }
-    return values;
   }
 
   @Override
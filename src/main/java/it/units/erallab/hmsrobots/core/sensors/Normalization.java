@@ -32,14 +32,12 @@ public class Normalization extends CompositeSensor {
   }
 
   @Override
-  public double[] sense(double t) {
+  public void sense(double t, double[] out, int offset) {
     double[] innerValues = sensor.getReadings();
-    double[] values = new double[innerValues.length];
-    for (int i = 0; i < values.length; i++) {
-      DoubleRange d = sensor.getDomains()[i];
-      values[i] = d.normalize(innerValues[i]);
+    DoubleRange[] innerDomains = sensor.getDomains();
+    for (int i = 0; i < innerValues.length; i++) {
+      out[offset + i] = innerDomains[i].normalize(innerValues[i]);
     }
-    return values;
   }
 
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.core.sensors;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class Sampled extends CompositeSensor {
+
+  @JsonProperty
+  private final double period;
+
+  private double lastSampleT;
+
+  @JsonCreator
+  public Sampled(
+      @JsonProperty("sensor") Sensor sensor,
+      @JsonProperty("period") double period
+  ) {
+    super(sensor.getDomains(), sensor);
+    this.period = period;
+    reset();
+  }
+
+  @Override
+  public void act(double t) {
+    //the inner sensor is sampled at most once per period: in between, its last readings are held
+    if (t - lastSampleT >= period) {
+      sensor.act(t);
+      lastSampleT = t;
+    }
+    sense(t, readings, readingsOffset);
+  }
+
+  @Override
+  protected void sense(double t, double[] out, int offset) {
+    double[] innerReadings = sensor.getReadings();
+    System.arraycopy(innerReadings, 0, out, offset, innerReadings.length);
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    lastSampleT = Double.NEGATIVE_INFINITY;
+  }
+
+  @Override
+  public String toString() {
+    return "Sampled{" +
+        "sensor=" + sensor +
+        ", period=" + period +
+        '}';
+  }
+}
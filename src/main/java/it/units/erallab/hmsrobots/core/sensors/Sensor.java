@@ -29,6 +29,9 @@ public interface Sensor extends Actionable, Snapshottable {
 
   double[] getReadings();
 
+  //makes the sensor write its readings in buffer, starting from offset
+  void setReadingsBuffer(double[] buffer, int offset);
+
   void setVoxel(Voxel voxel);
 
 }
@@ -36,15 +36,14 @@ public class SoftNormalization extends CompositeSensor {
   }
 
   @Override
-  public double[] sense(double t) {
+  public void sense(double t, double[] out, int offset) {
     double[] innerValues = sensor.getReadings();
-    double[] values = new double[innerValues.length];
-    for (int i = 0; i < values.length; i++) {
-      double v = sensor.getDomains()[i].normalize(innerValues[i]);
+    DoubleRange[] innerDomains = sensor.getDomains();
+    for (int i = 0; i < innerValues.length; i++) {
+      double v = innerDomains[i].normalize(innerValues[i]);
       //tanh(((x*2)-1)*2)/2+1/2
-      values[i] = Math.tanh(((v * 2d) - 1d) * 2d) / 2d + 0.5d;
+      out[offset + i] = Math.tanh(((v * 2d) - 1d) * 2d) / 2d + 0.5d;
     }
-    return values;
   }
 
 
@@ -43,8 +43,8 @@ public class TimeFunction extends AbstractSensor {
   }
 
   @Override
-  public double[] sense(double t) {
-    return new double[]{function.apply(t)};
+  public void sense(double t, double[] out, int offset) {
+    out[offset] = function.apply(t);
   }
 
   @Override
@@ -35,18 +35,17 @@ public class Trend extends AggregatorSensor {
   }
 
   @Override
-  protected double[] aggregate(double t) {
+  protected void aggregate(double t, double[] out, int offset) {
     double localInterval = readings.lastKey() - readings.firstKey();
     if (localInterval == 0) {
-      return new double[domains.length];
+      Arrays.fill(out, offset, offset + domains.length, 0d);
+      return;
     }
     double[] firsts = readings.firstEntry().getValue();
     double[] lasts = readings.lastEntry().getValue();
-    double[] changes = new double[firsts.length];
-    for (int i = 0; i < changes.length; i++) {
-      changes[i] = (lasts[i] - firsts[i]) / (localInterval);
+    for (int i = 0; i < firsts.length; i++) {
+      out[offset + i] = (lasts[i] - firsts[i]) / (localInterval);
     }
-    return changes;
   }
 
 }
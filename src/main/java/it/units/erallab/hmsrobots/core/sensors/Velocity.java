@@ -55,28 +55,26 @@ public class Velocity extends AbstractSensor {
   public enum Axis {X, Y}
 
   @Override
-  public double[] sense(double t) {
-    double[] values = new double[domains.length];
-    int c = 0;
+  public void sense(double t, double[] out, int offset) {
+    int c = offset;
     Point2 linearVelocity = voxel.getLinearVelocity();
     Vector2 velocity = new Vector2(linearVelocity.x(), linearVelocity.y());
     double angle = voxel.getAngle();
     if (axes.contains(Axis.X)) {
       if (!rotated) {
-        values[c] = velocity.x;
+        out[c] = velocity.x;
       } else {
-        values[c] = velocity.copy().dot(new Vector2(angle));
+        out[c] = velocity.copy().dot(new Vector2(angle));
       }
       c = c + 1;
     }
     if (axes.contains(Axis.Y)) {
       if (!rotated) {
-        values[c] = velocity.y;
+        out[c] = velocity.y;
       } else {
-        values[c] = velocity.copy().dot(new Vector2(angle + Math.PI / 2d));
+        out[c] = velocity.copy().dot(new Vector2(angle + Math.PI / 2d));
       }
     }
-    return values;
   }
 
   @Override
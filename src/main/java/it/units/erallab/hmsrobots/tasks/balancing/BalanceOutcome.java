@@ -17,12 +17,17 @@ public class BalanceOutcome extends Outcome {
     this.angles = Collections.unmodifiableSortedMap(new TreeMap<>(angles));
   }
 
+  private BalanceOutcome(BalanceOutcome outcome, double startT, double endT) {
+    super(outcome, startT, endT);
+    angles = subMap(outcome.angles, startT, endT);
+  }
+
   public SortedMap<Double, Double> getAngles() {
     return angles;
   }
 
   public BalanceOutcome subOutcome(double startT, double endT) {
-    return new BalanceOutcome(observations.subMap(startT, endT), angles.subMap(startT, endT));
+    return new BalanceOutcome(this, startT, endT);
   }
 
 }
@@ -105,18 +105,9 @@ public class Balancing extends AbstractTask<Robot, BalanceOutcome> {
   }
 
   public boolean stopCondition(Robot robot) {
-    for (Grid.Entry<Voxel> entry : robot.getVoxels()) {
-      if (entry.value() == null) {
-        continue;
-      }
-      Voxel voxel = entry.value();
-      for (Body vertexBody : voxel.getVertexBodies()) {
-        List<Body> inContactBodies = voxel.getWorld().getInContactBodies(vertexBody, false);
-        for (Body inContactBody : inContactBodies) {
-          if ((inContactBody.getUserData() != null) && (inContactBody.getUserData().equals(Ground.class))) {
-            return true;
-          }
-        }
+    for (Voxel voxel : robot.getVoxels().values()) {
+      if (voxel != null && voxel.isTouchingGround()) {
+        return true;
       }
     }
     return false;
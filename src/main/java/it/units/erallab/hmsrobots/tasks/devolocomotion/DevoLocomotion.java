@@ -22,6 +22,7 @@ import it.units.erallab.hmsrobots.core.objects.Robot;
 import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
 import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.tasks.locomotion.StopCondition;
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.Settings;
 import org.dyn4j.geometry.Vector2;
@@ -38,20 +39,30 @@ public abstract class DevoLocomotion extends AbstractTask<UnaryOperator<Robot>,
   protected final double maxT;
   protected final double[][] groundProfile;
   protected final double initialPlacement;
+  protected final StopCondition stopCondition;
 
   public DevoLocomotion(double maxT, double[][] groundProfile, double initialPlacement, Settings settings) {
+    this(maxT, groundProfile, initialPlacement, StopCondition.never(), settings);
+  }
+
+  public DevoLocomotion(
+      double maxT,
+      double[][] groundProfile,
+      double initialPlacement,
+      StopCondition stopCondition,
+      Settings settings
+  ) {
     super(settings);
     this.maxT = maxT;
     this.groundProfile = groundProfile;
     this.initialPlacement = initialPlacement;
+    this.stopCondition = stopCondition;
   }
 
   @Override
   public abstract DevoOutcome apply(UnaryOperator<Robot> solution, SnapshotListener listener);
 
-  protected void rebuildWorld(Ground ground, Robot robot, World<Body> world, double newMinX) {
-    ground.addTo(world);
-    robot.addTo(world);
+  private static void place(Ground ground, Robot robot, double newMinX) {
     //position robot: translate on x
     robot.translate(new Vector2(newMinX - robot.boundingBox().min().x(), 0));
     //translate on y
@@ -62,4 +73,21 @@ public abstract class DevoLocomotion extends AbstractTask<UnaryOperator<Robot>,
     robot.translate(new Vector2(0, Locomotion.INITIAL_PLACEMENT_Y_GAP - minYGap));
   }
 
+  protected void rebuildWorld(Ground ground, Robot robot, World<Body> world, double newMinX) {
+    ground.addTo(world);
+    robot.addTo(world);
+    place(ground, robot, newMinX);
+  }
+
+  protected void replaceRobot(Ground ground, Robot robot, World<Body> world, double newMinX) {
+    //the ground stays in the world: only joints (which all belong to the robot) and non-ground bodies are removed
+    world.removeAllJoints();
+    world.getBodies().stream()
+        .filter(b -> !Ground.class.equals(b.getUserData()))
+        .toList()
+        .forEach(world::removeBody);
+    place(ground, robot, newMinX);
+    robot.addTo(world);
+  }
+
 }
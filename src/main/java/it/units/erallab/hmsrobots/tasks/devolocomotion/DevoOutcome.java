@@ -27,6 +27,7 @@ import java.util.stream.Collectors;
 public class DevoOutcome {
 
   private final List<DevoStageOutcome> outcomeList;
+  private boolean truncated;
 
   public DevoOutcome(List<DevoStageOutcome> outcomeList) {
     this.outcomeList = outcomeList;
@@ -80,4 +81,12 @@ public class DevoOutcome {
     return outcomeList.stream().map(d -> d.velocity).toList();
   }
 
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  public void setTruncated(boolean truncated) {
+    this.truncated = truncated;
+  }
+
 }
@@ -26,6 +26,7 @@ import it.units.erallab.hmsrobots.core.snapshots.Snapshottable;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
 import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
 import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import it.units.erallab.hmsrobots.tasks.locomotion.StopCondition;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.lang3.time.StopWatch;
 import org.dyn4j.dynamics.Body;
@@ -53,13 +54,25 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
       double maxT,
       double[][] groundProfile,
       double initialPlacement,
+      StopCondition stopCondition,
       Settings settings
   ) {
-    super(maxT, groundProfile, initialPlacement, settings);
+    super(maxT, groundProfile, initialPlacement, stopCondition, settings);
     this.stageMinDistance = stageMinDistance;
     this.stageMaxT = stageMaxT;
   }
 
+  public DistanceBasedDevoLocomotion(
+      double stageMinDistance,
+      double stageMaxT,
+      double maxT,
+      double[][] groundProfile,
+      double initialPlacement,
+      Settings settings
+  ) {
+    this(stageMinDistance, stageMaxT, maxT, groundProfile, initialPlacement, StopCondition.never(), settings);
+  }
+
   public DistanceBasedDevoLocomotion(
       double stageMinDistance,
       double stageMaxT,
@@ -101,6 +114,7 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
     rebuildWorld(ground, robot, world, initialPlacement);
     List<WorldObject> worldObjects = List.of(ground, robot);
     //run
+    StopCondition.Checker checker = stopCondition.checker(maxT);
     DevoOutcome devoOutcome = new DevoOutcome();
     Map<Double, Outcome.Observation> observations = new HashMap<>();
     double t = 0d;
@@ -132,6 +146,11 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
       if (t - stageT > stageMaxT) {
         break;
       }
+      //check if stop
+      if (checker.shouldStop(t, robot)) {
+        devoOutcome.setTruncated(true);
+        break;
+      }
       //check if develop
       if (robot.boundingBox().min().x() - stageX > stageMinDistance) {
         stageT = t;
@@ -146,8 +165,7 @@ public class DistanceBasedDevoLocomotion extends DevoLocomotion {
         double minX = robot.boundingBox().min().x();
         robot = solution.apply(robot);
         //place
-        world.removeAllBodies();
-        rebuildWorld(ground, robot, world, minX);
+        replaceRobot(ground, robot, world, minX);
         worldObjects = List.of(ground, robot);
         stageX = robot.center().x();
         targetXs.add(stageX + stageMinDistance);
@@ -25,6 +25,7 @@ import it.units.erallab.hmsrobots.tasks.AbstractTask;
 import it.units.erallab.hmsrobots.tasks.devolocomotion.DevoOutcome.DevoStageOutcome;
 import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
 import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import it.units.erallab.hmsrobots.tasks.locomotion.StopCondition;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.lang3.time.StopWatch;
 import org.dyn4j.dynamics.Body;
@@ -51,12 +52,23 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
       double maxT,
       double[][] groundProfile,
       double initialPlacement,
+      StopCondition stopCondition,
       Settings settings
   ) {
-    super(maxT, groundProfile, initialPlacement, settings);
+    super(maxT, groundProfile, initialPlacement, stopCondition, settings);
     this.developmentSchedule = new LinkedList<>(developmentSchedule);
   }
 
+  public TimeBasedDevoLocomotion(
+      List<Double> developmentSchedule,
+      double maxT,
+      double[][] groundProfile,
+      double initialPlacement,
+      Settings settings
+  ) {
+    this(developmentSchedule, maxT, groundProfile, initialPlacement, StopCondition.never(), settings);
+  }
+
   public TimeBasedDevoLocomotion(
       List<Double> developmentSchedule,
       double maxT,
@@ -98,6 +110,7 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
     rebuildWorld(ground, robot, world, initialPlacement);
     List<WorldObject> worldObjects = List.of(ground, robot);
     //run
+    StopCondition.Checker checker = stopCondition.checker(maxT);
     DevoOutcome devoOutcome = new DevoOutcome();
     Map<Double, Outcome.Observation> observations = new HashMap<>();
     double t = 0d;
@@ -112,6 +125,11 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
           ground.yAt(robot.center().x()),
           (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
       ));
+      //check if stop
+      if (checker.shouldStop(t, robot)) {
+        devoOutcome.setTruncated(true);
+        break;
+      }
       //check if develop
       if (t >= stageFinalT) {
         stageFinalT = copiedDevelopmentSchedule.size() > 0 ? copiedDevelopmentSchedule.remove(0) : maxT;
@@ -123,8 +141,7 @@ public class TimeBasedDevoLocomotion extends DevoLocomotion {
         double minX = robot.boundingBox().min().x();
         robot = solution.apply(robot);
         //place
-        world.removeAllBodies();
-        rebuildWorld(ground, robot, world, minX);
+        replaceRobot(ground, robot, world, minX);
         worldObjects = List.of(ground, robot);
       }
     }
@@ -19,6 +19,7 @@ package it.units.erallab.hmsrobots.tasks.locomotion;
 import it.units.erallab.hmsrobots.core.geometry.BoundingBox;
 import it.units.erallab.hmsrobots.core.objects.Ground;
 import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.objects.WorldObject;
 import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
@@ -33,6 +34,7 @@ import org.dyn4j.world.World;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.random.RandomGenerator;
+import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 
 public class Locomotion extends AbstractTask<Robot, Outcome> {
@@ -42,23 +44,60 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
   public final static double TERRAIN_BORDER_HEIGHT = 100d;
   public static final int TERRAIN_LENGTH = 2000;
   public static final double TERRAIN_BORDER_WIDTH = 10d;
+  public static final int TERRAIN_CACHE_SIZE = 1000;
+  //terrains are deterministic given their name (which includes the seed, if any): the most recently used are kept
+  private static final Map<String, double[][]> TERRAINS = Collections.synchronizedMap(new LinkedHashMap<>(
+      16,
+      0.75f,
+      true
+  ) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, double[][]> eldest) {
+      return size() > TERRAIN_CACHE_SIZE;
+    }
+  });
 
   private final double finalT;
   private final double[][] groundProfile;
   private final double initialPlacement;
+  private final StopCondition stopCondition;
 
   public Locomotion(double finalT, double[][] groundProfile, Settings settings) {
     this(finalT, groundProfile, groundProfile[0][1] + INITIAL_PLACEMENT_X_GAP, settings);
   }
 
   public Locomotion(double finalT, double[][] groundProfile, double initialPlacement, Settings settings) {
+    this(finalT, groundProfile, initialPlacement, StopCondition.never(), settings);
+  }
+
+  public Locomotion(double finalT, double[][] groundProfile, StopCondition stopCondition, Settings settings) {
+    this(finalT, groundProfile, groundProfile[0][1] + INITIAL_PLACEMENT_X_GAP, stopCondition, settings);
+  }
+
+  public Locomotion(
+      double finalT,
+      double[][] groundProfile,
+      double initialPlacement,
+      StopCondition stopCondition,
+      Settings settings
+  ) {
     super(settings);
     this.finalT = finalT;
     this.groundProfile = groundProfile;
     this.initialPlacement = initialPlacement;
+    this.stopCondition = stopCondition;
   }
 
   public static double[][] createTerrain(String name) {
+    double[][] terrain = TERRAINS.get(name);
+    if (terrain == null) {
+      terrain = buildTerrain(name);
+      TERRAINS.put(name, terrain);
+    }
+    return new double[][]{Arrays.copyOf(terrain[0], terrain[0].length), Arrays.copyOf(terrain[1], terrain[1].length)};
+  }
+
+  private static double[][] buildTerrain(String name) {
     String flat = "flat";
     String flatWithStart = "flatWithStart-(?<seed>[0-9]+)";
     String hilly = "hilly-(?<h>[0-9]+(\\.[0-9]+)?)-(?<w>[0-9]+(\\.[0-9]+)?)-(?<seed>[0-9]+)";
@@ -94,37 +133,40 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
       double h = Double.parseDouble(params.get("h"));
       double w = Double.parseDouble(params.get("w"));
       RandomGenerator random = new Random(Integer.parseInt(params.get("seed")));
-      List<Double> xs = new ArrayList<>(List.of(0d, TERRAIN_BORDER_WIDTH));
-      List<Double> ys = new ArrayList<>(List.of(TERRAIN_BORDER_HEIGHT, 0d));
-      while (xs.get(xs.size() - 1) < TERRAIN_LENGTH - TERRAIN_BORDER_WIDTH) {
-        xs.add(xs.get(xs.size() - 1) + Math.max(1d, (random.nextGaussian() * 0.25 + 1) * w));
-        ys.add(ys.get(ys.size() - 1) + random.nextGaussian() * h);
+      DoubleStream.Builder xs = DoubleStream.builder().add(0d).add(TERRAIN_BORDER_WIDTH);
+      DoubleStream.Builder ys = DoubleStream.builder().add(TERRAIN_BORDER_HEIGHT).add(0d);
+      double x = TERRAIN_BORDER_WIDTH;
+      double y = 0d;
+      while (x < TERRAIN_LENGTH - TERRAIN_BORDER_WIDTH) {
+        x = x + Math.max(1d, (random.nextGaussian() * 0.25 + 1) * w);
+        y = y + random.nextGaussian() * h;
+        xs.add(x);
+        ys.add(y);
       }
-      xs.addAll(List.of(xs.get(xs.size() - 1) + TERRAIN_BORDER_WIDTH));
-      ys.addAll(List.of(TERRAIN_BORDER_HEIGHT));
-      return new double[][]{
-          xs.stream().mapToDouble(d -> d).toArray(),
-          ys.stream().mapToDouble(d -> d).toArray()
-      };
+      xs.add(x + TERRAIN_BORDER_WIDTH);
+      ys.add(TERRAIN_BORDER_HEIGHT);
+      return new double[][]{xs.build().toArray(), ys.build().toArray()};
     }
     if ((params = Utils.params(steppy, name)) != null) {
       double h = Double.parseDouble(params.get("h"));
       double w = Double.parseDouble(params.get("w"));
       RandomGenerator random = new Random(Integer.parseInt(params.get("seed")));
-      List<Double> xs = new ArrayList<>(List.of(0d, TERRAIN_BORDER_WIDTH));
-      List<Double> ys = new ArrayList<>(List.of(TERRAIN_BORDER_HEIGHT, 0d));
-      while (xs.get(xs.size() - 1) < TERRAIN_LENGTH - TERRAIN_BORDER_WIDTH) {
-        xs.add(xs.get(xs.size() - 1) + Math.max(1d, (random.nextGaussian() * 0.25 + 1) * w));
-        xs.add(xs.get(xs.size() - 1) + 0.5d);
-        ys.add(ys.get(ys.size() - 1));
-        ys.add(ys.get(ys.size() - 1) + random.nextGaussian() * h);
+      DoubleStream.Builder xs = DoubleStream.builder().add(0d).add(TERRAIN_BORDER_WIDTH);
+      DoubleStream.Builder ys = DoubleStream.builder().add(TERRAIN_BORDER_HEIGHT).add(0d);
+      double x = TERRAIN_BORDER_WIDTH;
+      double y = 0d;
+      while (x < TERRAIN_LENGTH - TERRAIN_BORDER_WIDTH) {
+        x = x + Math.max(1d, (random.nextGaussian() * 0.25 + 1) * w);
+        xs.add(x);
+        x = x + 0.5d;
+        xs.add(x);
+        ys.add(y);
+        y = y + random.nextGaussian() * h;
+        ys.add(y);
       }
-      xs.addAll(List.of(xs.get(xs.size() - 1) + TERRAIN_BORDER_WIDTH));
-      ys.addAll(List.of(TERRAIN_BORDER_HEIGHT));
-      return new double[][]{
-          xs.stream().mapToDouble(d -> d).toArray(),
-          ys.stream().mapToDouble(d -> d).toArray()
-      };
+      xs.add(x + TERRAIN_BORDER_WIDTH);
+      ys.add(TERRAIN_BORDER_HEIGHT);
+      return new double[][]{xs.build().toArray(), ys.build().toArray()};
     }
     if ((params = Utils.params(downhill, name)) != null) {
       double angle = Double.parseDouble(params.get("angle"));
@@ -167,6 +209,16 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
 
   @Override
   public Outcome apply(Robot robot, SnapshotListener listener) {
+    return applyBatch(List.of(robot), listener).get(0);
+  }
+
+  public List<Outcome> applyBatch(List<Robot> robots) {
+    return applyBatch(robots, null);
+  }
+
+  //robots are put in the same world, on the same ground: they do not collide with each other, hence each one moves as
+  //if it were alone, but the costs of the world are paid once
+  public List<Outcome> applyBatch(List<Robot> robots, SnapshotListener listener) {
     StopWatch stopWatch = StopWatch.createStarted();
     //init world
     World<Body> world = new World<>();
@@ -175,7 +227,73 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
     Ground ground = new Ground(groundProfile[0], groundProfile[1]);
     ground.addTo(world);
     worldObjects.add(ground);
-    robot.reset();
+    List<Map<Double, Outcome.Observation>> observations = new ArrayList<>(robots.size());
+    List<StopCondition.Checker> checkers = new ArrayList<>(robots.size());
+    for (Robot robot : robots) {
+      robot.reset();
+      place(robot, ground, initialPlacement);
+      //add robot to world
+      robot.addTo(world);
+      worldObjects.add(robot);
+      observations.add(new HashMap<>((int) Math.ceil(finalT / settings.getStepFrequency())));
+      checkers.add(stopCondition.checker(finalT));
+    }
+    //run
+    Outcome.Observation[] lastObservations = new Outcome.Observation[robots.size()];
+    double[] stopTs = new double[robots.size()];
+    Arrays.fill(stopTs, Double.NaN);
+    int nOfRunning = robots.size();
+    double t = 0d;
+    while (t < finalT && nOfRunning > 0) {
+      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, worldObjects, listener);
+      for (int i = 0; i < robots.size(); i++) {
+        if (!Double.isNaN(stopTs[i])) {
+          continue;
+        }
+        Robot robot = robots.get(i);
+        lastObservations[i] = new Outcome.Observation(
+            Grid.create(robot.getVoxels(), v -> v == null ? null : v.getVoxelPoly()),
+            ground.yAt(robot.center().x()),
+            (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
+        );
+        observations.get(i).put(t, lastObservations[i]);
+        if (checkers.get(i).shouldStop(t, robot)) {
+          stopTs[i] = t;
+          nOfRunning = nOfRunning - 1;
+          //the stopped robot no longer acts nor moves
+          if (nOfRunning > 0) {
+            worldObjects.remove(robot);
+            for (Voxel voxel : robot.getVoxels().values()) {
+              if (voxel != null) {
+                for (Body body : voxel.getVertexBodies()) {
+                  world.removeBody(body);
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    //fill the remaining time with the last observation, as if the robot stood still
+    for (int i = 0; i < robots.size(); i++) {
+      double stopT = stopTs[i];
+      if (!Double.isNaN(stopT)) {
+        while (stopT < finalT) {
+          stopT = stopT + settings.getStepFrequency();
+          observations.get(i).put(stopT, lastObservations[i]);
+        }
+      }
+    }
+    stopWatch.stop();
+    //prepare outcomes
+    List<Outcome> outcomes = new ArrayList<>(robots.size());
+    for (int i = 0; i < robots.size(); i++) {
+      outcomes.add(new Outcome(observations.get(i), !Double.isNaN(stopTs[i])));
+    }
+    return outcomes;
+  }
+
+  static void place(Robot robot, Ground ground, double initialPlacement) {
     //position robot: translate on x
     BoundingBox boundingBox = robot.boundingBox();
     robot.translate(new Vector2(initialPlacement - boundingBox.min().x(), 0));
@@ -185,24 +303,5 @@ public class Locomotion extends AbstractTask<Robot, Outcome> {
         .mapToDouble(v -> v.boundingBox().min().y() - ground.yAt(v.center().x()))
         .min().orElse(0d);
     robot.translate(new Vector2(0, INITIAL_PLACEMENT_Y_GAP - minYGap));
-    //get initial x
-    double initCenterX = robot.center().x();
-    //add robot to world
-    robot.addTo(world);
-    worldObjects.add(robot);
-    //run
-    Map<Double, Outcome.Observation> observations = new HashMap<>((int) Math.ceil(finalT / settings.getStepFrequency()));
-    double t = 0d;
-    while (t < finalT) {
-      t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, worldObjects, listener);
-      observations.put(t, new Outcome.Observation(
-          Grid.create(robot.getVoxels(), v -> v == null ? null : v.getVoxelPoly()),
-          ground.yAt(robot.center().x()),
-          (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
-      ));
-    }
-    stopWatch.stop();
-    //prepare outcome
-    return new Outcome(observations);
   }
 }
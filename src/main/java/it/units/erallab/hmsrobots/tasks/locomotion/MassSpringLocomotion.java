@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.tasks.locomotion;
+
+import it.units.erallab.hmsrobots.behavior.BehaviorUtils;
+import it.units.erallab.hmsrobots.core.geometry.Point2;
+import it.units.erallab.hmsrobots.core.objects.Ground;
+import it.units.erallab.hmsrobots.core.objects.MassSpringWorld;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.snapshots.SnapshotListener;
+import it.units.erallab.hmsrobots.tasks.AbstractTask;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+import org.apache.commons.lang3.time.StopWatch;
+import org.dyn4j.dynamics.Settings;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A locomotion task in which the robot is simulated by a {@link MassSpringWorld} rather than by dyn4j. Only the step
+ * frequency of the settings is used. Since there are no dyn4j bodies, no snapshots are produced, and stop conditions
+ * which look at the vertex bodies of voxels do not work.
+ */
+public class MassSpringLocomotion extends AbstractTask<Robot, Outcome> {
+
+  public static final int N_OF_SUBSTEPS = 8;
+
+  private final double finalT;
+  private final double[][] groundProfile;
+  private final double initialPlacement;
+  private final StopCondition stopCondition;
+  private final int nOfSubsteps;
+
+  public MassSpringLocomotion(double finalT, double[][] groundProfile, Settings settings) {
+    this(
+        finalT,
+        groundProfile,
+        groundProfile[0][1] + Locomotion.INITIAL_PLACEMENT_X_GAP,
+        StopCondition.never(),
+        N_OF_SUBSTEPS,
+        settings
+    );
+  }
+
+  public MassSpringLocomotion(
+      double finalT,
+      double[][] groundProfile,
+      double initialPlacement,
+      StopCondition stopCondition,
+      int nOfSubsteps,
+      Settings settings
+  ) {
+    super(settings);
+    this.finalT = finalT;
+    this.groundProfile = groundProfile;
+    this.initialPlacement = initialPlacement;
+    this.stopCondition = stopCondition;
+    this.nOfSubsteps = nOfSubsteps;
+  }
+
+  @Override
+  public Outcome apply(Robot robot, SnapshotListener listener) {
+    StopWatch stopWatch = StopWatch.createStarted();
+    //init world
+    MassSpringWorld world = new MassSpringWorld(groundProfile[0], groundProfile[1], nOfSubsteps);
+    Ground ground = new Ground(groundProfile[0], groundProfile[1]);
+    robot.reset();
+    Locomotion.place(robot, ground, initialPlacement);
+    robot.addTo(world);
+    //run
+    Map<Double, Outcome.Observation> observations = new HashMap<>((int) Math.ceil(finalT / settings.getStepFrequency()));
+    StopCondition.Checker checker = stopCondition.checker(finalT);
+    double t = 0d;
+    Outcome.Observation observation = null;
+    boolean stopped = false;
+    while (t < finalT) {
+      t = t + settings.getStepFrequency();
+      world.step(settings.getStepFrequency());
+      robot.control(t);
+      observation = new Outcome.Observation(
+          Grid.create(robot.getVoxels(), v -> v == null ? null : v.getVoxelPoly()),
+          ground.yAt(robot.center().x()),
+          (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
+      );
+      observations.put(t, observation);
+      if (checker.shouldStop(t, robot)) {
+        stopped = true;
+        break;
+      }
+    }
+    //fill the remaining time with the last observation, as if the robot stood still
+    if (stopped) {
+      while (t < finalT) {
+        t = t + settings.getStepFrequency();
+        observations.put(t, observation);
+      }
+    }
+    stopWatch.stop();
+    return new Outcome(observations, stopped);
+  }
+
+  //simulates copies of the robot with this task and with dyn4j, and gives the distance between the centers of the robot
+  //in the two simulations at each time
+  public SortedMap<Double, Double> centerDeviations(Robot robot) {
+    Outcome outcome = apply(SerializationUtils.clone(robot));
+    Outcome referenceOutcome = new Locomotion(
+        finalT,
+        groundProfile,
+        initialPlacement,
+        stopCondition,
+        settings
+    ).apply(SerializationUtils.clone(robot));
+    SortedMap<Double, Double> deviations = new TreeMap<>();
+    for (Map.Entry<Double, Outcome.Observation> entry : outcome.getObservations().entrySet()) {
+      Outcome.Observation referenceObservation = referenceOutcome.getObservations().get(entry.getKey());
+      if (referenceObservation != null) {
+        Point2 center = BehaviorUtils.center(entry.getValue().voxelPolies());
+        Point2 referenceCenter = BehaviorUtils.center(referenceObservation.voxelPolies());
+        deviations.put(entry.getKey(), Math.hypot(center.x() - referenceCenter.x(), center.y() - referenceCenter.y()));
+      }
+    }
+    return deviations;
+  }
+
+}
@@ -18,43 +18,169 @@
 package it.units.erallab.hmsrobots.tasks.locomotion;
 
 import it.units.erallab.hmsrobots.behavior.BehaviorUtils;
-import it.units.erallab.hmsrobots.behavior.Footprint;
 import it.units.erallab.hmsrobots.core.geometry.Point2;
 import it.units.erallab.hmsrobots.core.snapshots.VoxelPoly;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
 import it.units.erallab.hmsrobots.util.DoubleRange;
 import it.units.erallab.hmsrobots.util.Grid;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
 
 public class Outcome {
 
   protected final SortedMap<Double, Observation> observations;
+  private final boolean truncated;
+  private final Map<Integer, BooleanGrid> averagePostures;
+  private final Map<Integer, double[][]> footprintSignals;
+  private volatile Metrics metrics;
 
   public Outcome(Map<Double, Observation> observations) {
+    this(observations, false);
+  }
+
+  public Outcome(Map<Double, Observation> observations, boolean truncated) {
     this.observations = Collections.unmodifiableSortedMap(new TreeMap<>(observations));
+    this.truncated = truncated;
+    averagePostures = new ConcurrentHashMap<>();
+    footprintSignals = new ConcurrentHashMap<>();
+  }
+
+  protected Outcome(Outcome outcome, double startT, double endT) {
+    observations = subMap(outcome.observations, startT, endT);
+    truncated = outcome.truncated;
+    averagePostures = new ConcurrentHashMap<>();
+    footprintSignals = new ConcurrentHashMap<>();
+  }
+
+  //a view of a view throws if its bounds are outside the range of the parent view: bounds are hence clamped to the
+  //keys of the map, giving the same entries a sub map of a copy of the map would give
+  protected static <V> SortedMap<Double, V> subMap(SortedMap<Double, V> map, double startT, double endT) {
+    if (startT > endT) {
+      throw new IllegalArgumentException(String.format("Start time %f is greater than end time %f", startT, endT));
+    }
+    if (map.isEmpty() || startT > map.lastKey() || endT <= map.firstKey()) {
+      return Collections.emptySortedMap();
+    }
+    double clampedStartT = Math.max(startT, map.firstKey());
+    return endT > map.lastKey() ? map.tailMap(clampedStartT) : map.subMap(clampedStartT, endT);
   }
 
   public record Observation(Grid<VoxelPoly> voxelPolies, double terrainHeight, double computationTime) {
   }
 
+  private record Metrics(
+      double dT,
+      double[] centerXs,
+      double[] centerYs,
+      double[] centerXVelocities,
+      double[] centerYVelocities,
+      double[] centerAngles,
+      double distance,
+      double controlEnergy,
+      double areaRatioEnergy
+  ) {
+  }
+
+  private static double sum(Grid<VoxelPoly> voxelPolies, ToDoubleFunction<VoxelPoly> function) {
+    return voxelPolies.values().stream().filter(Objects::nonNull).mapToDouble(function).sum();
+  }
+
+  //all the descriptors which depend on no parameters are computed together, with one sweep over the observations
+  private Metrics computeMetrics() {
+    Observation firstObservation = observations.get(observations.firstKey());
+    Observation lastObservation = observations.get(observations.lastKey());
+    int n = observations.size();
+    double[] intervals = new double[n - 1];
+    double[] centerXs = new double[n];
+    double[] centerYs = new double[n];
+    double[] centerXVelocities = new double[n];
+    double[] centerYVelocities = new double[n];
+    double[] centerAngles = new double[n];
+    Observation previousObservation = null;
+    double previousT = Double.NaN;
+    int i = 0;
+    for (Map.Entry<Double, Observation> entry : observations.entrySet()) {
+      if (i > 0) {
+        intervals[i - 1] = entry.getKey() - previousT;
+      }
+      previousT = entry.getKey();
+      //observations repeated after a stop are the same object
+      if (entry.getValue() == previousObservation) {
+        centerXs[i] = centerXs[i - 1];
+        centerYs[i] = centerYs[i - 1];
+        centerXVelocities[i] = centerXVelocities[i - 1];
+        centerYVelocities[i] = centerYVelocities[i - 1];
+        centerAngles[i] = centerAngles[i - 1];
+      } else {
+        Grid<VoxelPoly> voxelPolies = entry.getValue().voxelPolies();
+        int centralIndex = BehaviorUtils.getCentralIndex(voxelPolies);
+        VoxelPoly central = voxelPolies.get(centralIndex % voxelPolies.getW(), centralIndex / voxelPolies.getW());
+        Point2 center = central.center();
+        centerXs[i] = center.x();
+        centerYs[i] = center.y();
+        centerXVelocities[i] = central.getLinearVelocity().x();
+        centerYVelocities[i] = central.getLinearVelocity().y();
+        centerAngles[i] = central.getAngle();
+      }
+      previousObservation = entry.getValue();
+      i = i + 1;
+    }
+    return new Metrics(
+        Arrays.stream(intervals).average().orElse(0d),
+        centerXs,
+        centerYs,
+        centerXVelocities,
+        centerYVelocities,
+        centerAngles,
+        BehaviorUtils.center(lastObservation.voxelPolies()).x() - BehaviorUtils.center(firstObservation.voxelPolies()).x(),
+        sum(lastObservation.voxelPolies(), VoxelPoly::getControlEnergy) - sum(
+            firstObservation.voxelPolies(),
+            VoxelPoly::getControlEnergy
+        ),
+        sum(lastObservation.voxelPolies(), VoxelPoly::getAreaRatioEnergy) - sum(
+            firstObservation.voxelPolies(),
+            VoxelPoly::getAreaRatioEnergy
+        )
+    );
+  }
+
+  private double[][] computeFootprintSignals(int n) {
+    double[][] signals = new double[n][observations.size()];
+    Observation previousObservation = null;
+    boolean[] mask = new boolean[n];
+    int t = 0;
+    for (Observation observation : observations.values()) {
+      if (observation != previousObservation) {
+        BehaviorUtils.computeFootprint(observation.voxelPolies().values(), mask);
+      }
+      for (int i = 0; i < n; i++) {
+        signals[i][t] = mask[i] ? 1d : 0d;
+      }
+      previousObservation = observation;
+      t = t + 1;
+    }
+    return signals;
+  }
+
+  //postures are rasterized in the same mask and accumulated as counts
+  private BooleanGrid computeAveragePosture(int n) {
+    BooleanGrid posture = new BooleanGrid(n, n);
+    int[] counts = new int[posture.size()];
+    Observation previousObservation = null;
+    for (Observation observation : observations.values()) {
+      if (observation != previousObservation) {
+        BehaviorUtils.computePostureMask(observation.voxelPolies().values(), posture);
+      }
+      posture.addTo(counts);
+      previousObservation = observation;
+    }
+    return BehaviorUtils.computeAveragePostureMask(counts, observations.size(), n, n);
+  }
+
   public double getAreaRatioEnergy() {
-    double initialEnergy = observations.get(observations.firstKey())
-        .voxelPolies()
-        .values()
-        .stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(VoxelPoly::getAreaRatioEnergy)
-        .sum();
-    double finalEnergy = observations.get(observations.lastKey())
-        .voxelPolies()
-        .values()
-        .stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(VoxelPoly::getAreaRatioEnergy)
-        .sum();
-    return finalEnergy - initialEnergy;
+    return metrics().areaRatioEnergy();
   }
 
   public double getAreaRatioPower() {
@@ -62,60 +188,36 @@ public class Outcome {
   }
 
   public Grid<Boolean> getAveragePosture(int n) {
-    return BehaviorUtils.computeAveragePosture(observations.values()
-        .stream()
-        .map(o -> BehaviorUtils.computePosture(o.voxelPolies().values().stream().filter(Objects::nonNull).toList(), n))
-        .toList());
+    return averagePostures.computeIfAbsent(n, this::computeAveragePosture).toGrid();
+  }
+
+  public double[] getAveragePostureDescriptor(int n) {
+    BooleanGrid averagePosture = averagePostures.computeIfAbsent(n, this::computeAveragePosture);
+    double[] descriptor = new double[averagePosture.size()];
+    for (int i = 0; i < descriptor.length; i++) {
+      descriptor[i] = averagePosture.get(i) ? 1d : 0d;
+    }
+    return descriptor;
   }
 
   public SortedMap<DoubleRange, Double> getCenterAngleSpectrum(double minF, double maxF, int nBins) {
-    SortedMap<Double, Double> signal = new TreeMap<>(observations.entrySet()
-        .stream()
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            e -> BehaviorUtils.getCentralElement(e.getValue().voxelPolies()).getAngle()
-        )));
-    return BehaviorUtils.computeQuantizedSpectrum(signal, minF, maxF, nBins);
+    return BehaviorUtils.computeQuantizedSpectrum(metrics().centerAngles(), metrics().dT(), minF, maxF, nBins);
   }
 
   public SortedMap<DoubleRange, Double> getCenterXPositionSpectrum(double minF, double maxF, int nBins) {
-    SortedMap<Double, Double> signal = new TreeMap<>(observations.entrySet()
-        .stream()
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            e -> BehaviorUtils.getCentralElement(e.getValue().voxelPolies()).center().x()
-        )));
-    return BehaviorUtils.computeQuantizedSpectrum(signal, minF, maxF, nBins);
+    return BehaviorUtils.computeQuantizedSpectrum(metrics().centerXs(), metrics().dT(), minF, maxF, nBins);
   }
 
   public SortedMap<DoubleRange, Double> getCenterXVelocitySpectrum(double minF, double maxF, int nBins) {
-    SortedMap<Double, Double> signal = new TreeMap<>(observations.entrySet()
-        .stream()
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            e -> BehaviorUtils.getCentralElement(e.getValue().voxelPolies()).getLinearVelocity().x()
-        )));
-    return BehaviorUtils.computeQuantizedSpectrum(signal, minF, maxF, nBins);
+    return BehaviorUtils.computeQuantizedSpectrum(metrics().centerXVelocities(), metrics().dT(), minF, maxF, nBins);
   }
 
   public SortedMap<DoubleRange, Double> getCenterYPositionSpectrum(double minF, double maxF, int nBins) {
-    SortedMap<Double, Double> signal = new TreeMap<>(observations.entrySet()
-        .stream()
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            e -> BehaviorUtils.getCentralElement(e.getValue().voxelPolies()).center().y()
-        )));
-    return BehaviorUtils.computeQuantizedSpectrum(signal, minF, maxF, nBins);
+    return BehaviorUtils.computeQuantizedSpectrum(metrics().centerYs(), metrics().dT(), minF, maxF, nBins);
   }
 
   public SortedMap<DoubleRange, Double> getCenterYVelocitySpectrum(double minF, double maxF, int nBins) {
-    SortedMap<Double, Double> signal = new TreeMap<>(observations.entrySet()
-        .stream()
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            e -> BehaviorUtils.getCentralElement(e.getValue().voxelPolies()).getLinearVelocity().y()
-        )));
-    return BehaviorUtils.computeQuantizedSpectrum(signal, minF, maxF, nBins);
+    return BehaviorUtils.computeQuantizedSpectrum(metrics().centerYVelocities(), metrics().dT(), minF, maxF, nBins);
   }
 
   public double getComputationTime() {
@@ -124,21 +226,7 @@ public class Outcome {
   }
 
   public double getControlEnergy() {
-    double initialEnergy = observations.get(observations.firstKey())
-        .voxelPolies()
-        .values()
-        .stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(VoxelPoly::getControlEnergy)
-        .sum();
-    double finalEnergy = observations.get(observations.lastKey())
-        .voxelPolies()
-        .values()
-        .stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(VoxelPoly::getControlEnergy)
-        .sum();
-    return finalEnergy - initialEnergy;
+    return metrics().controlEnergy();
   }
 
   public double getControlPower() {
@@ -150,41 +238,16 @@ public class Outcome {
   }
 
   public double getDistance() {
-    Point2 initialCenter = BehaviorUtils.center(observations.get(observations.firstKey())
-        .voxelPolies()
-        .values()
-        .stream()
-        .filter(Objects::nonNull)
-        .toList());
-    Point2 finalCenter = BehaviorUtils.center(observations.get(observations.lastKey())
-        .voxelPolies()
-        .values()
-        .stream()
-        .filter(Objects::nonNull)
-        .toList());
-    return finalCenter.x() - initialCenter.x();
+    return metrics().distance();
   }
 
   public List<SortedMap<DoubleRange, Double>> getFootprintsSpectra(int n, double minF, double maxF, int nBins) {
-    SortedMap<Double, Footprint> footprints = new TreeMap<>(observations.entrySet().stream().collect(Collectors.toMap(
-        Map.Entry::getKey,
-        e -> BehaviorUtils.computeFootprint(e.getValue()
-            .voxelPolies()
-            .values()
-            .stream()
-            .filter(Objects::nonNull)
-            .toList(), n)
-    )));
-    return IntStream.range(0, n)
-        .mapToObj(i -> BehaviorUtils.computeQuantizedSpectrum(
-            new TreeMap<>(footprints.entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getMask()[i] ? 1d : 0d))),
-            minF,
-            maxF,
-            nBins
-        ))
-        .toList();
+    double[][] signals = footprintSignals.computeIfAbsent(n, this::computeFootprintSignals);
+    List<SortedMap<DoubleRange, Double>> spectra = new ArrayList<>(n);
+    for (double[] signal : signals) {
+      spectra.add(BehaviorUtils.computeQuantizedSpectrum(signal, metrics().dT(), minF, maxF, nBins));
+    }
+    return Collections.unmodifiableList(spectra);
   }
 
   public SortedMap<Double, Observation> getObservations() {
@@ -199,20 +262,35 @@ public class Outcome {
     return getDistance() / getTime();
   }
 
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  private Metrics metrics() {
+    Metrics localMetrics = metrics;
+    if (localMetrics == null) {
+      localMetrics = computeMetrics();
+      metrics = localMetrics;
+    }
+    return localMetrics;
+  }
+
+  //the sub outcome is a view on the observations of this outcome: no observation is copied
   public Outcome subOutcome(double startT, double endT) {
-    return new Outcome(observations.subMap(startT, endT));
+    return new Outcome(this, startT, endT);
   }
 
   @Override
   public String toString() {
     return String.format(
-        "Outcome{computationTime=%.2fs, distance=%.2f, time=%.1fs, controlPower=%.1f, areaRatioPower=%.1f}",
+        "Outcome{computationTime=%.2fs, distance=%.2f, time=%.1fs, controlPower=%.1f, areaRatioPower=%.1f, truncated=%b}",
         getComputationTime(),
         getDistance(),
         getTime(),
         getControlPower(),
-        getAreaRatioPower()
+        getAreaRatioPower(),
+        truncated
     );
   }
 
-}
\ No newline at end of file
+}
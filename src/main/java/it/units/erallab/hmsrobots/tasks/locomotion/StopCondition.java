@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.tasks.locomotion;
+
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.Voxel;
+import org.dyn4j.dynamics.Body;
+
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A condition for ending a locomotion episode before its final time. Since conditions usually depend on the history
+ * of the robot, a new {@link Checker} is obtained for each episode, so that the same condition can be safely shared
+ * among tasks evaluated concurrently.
+ */
+@FunctionalInterface
+public interface StopCondition {
+
+  @FunctionalInterface
+  interface Checker {
+    boolean shouldStop(double t, Robot robot);
+  }
+
+  Checker checker(double finalT);
+
+  static StopCondition any(List<StopCondition> conditions) {
+    return finalT -> {
+      List<Checker> checkers = conditions.stream().map(c -> c.checker(finalT)).toList();
+      return (t, robot) -> {
+        for (Checker checker : checkers) {
+          if (checker.shouldStop(t, robot)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    };
+  }
+
+  static StopCondition never() {
+    return finalT -> (t, robot) -> false;
+  }
+
+  static StopCondition noProgress(double interval, double minDistance) {
+    return finalT -> new Checker() {
+      private double bestX = Double.NEGATIVE_INFINITY;
+      private double bestT = 0d;
+
+      @Override
+      public boolean shouldStop(double t, Robot robot) {
+        double x = robot.center().x();
+        if (Double.isInfinite(bestX)) {
+          bestX = x;
+          bestT = t;
+        } else if (x > bestX + minDistance) {
+          bestX = x;
+          bestT = t;
+        }
+        return t - bestT > interval;
+      }
+    };
+  }
+
+  static StopCondition upsideDown(double minAngle, double interval) {
+    double maxCos = Math.cos(minAngle);
+    return finalT -> new Checker() {
+      private double upsideDownT = Double.NaN;
+
+      @Override
+      public boolean shouldStop(double t, Robot robot) {
+        //average cosine of the angle of the upper side of each voxel
+        double cosSum = 0d;
+        int n = 0;
+        for (Voxel voxel : robot.getVoxels().values()) {
+          if (voxel != null) {
+            Body[] bodies = voxel.getVertexBodies();
+            double dX = bodies[1].getWorldCenter().x - bodies[0].getWorldCenter().x;
+            double dY = bodies[1].getWorldCenter().y - bodies[0].getWorldCenter().y;
+            cosSum = cosSum + dX / Math.sqrt(dX * dX + dY * dY);
+            n = n + 1;
+          }
+        }
+        if (n == 0 || cosSum / (double) n > maxCos) {
+          upsideDownT = Double.NaN;
+          return false;
+        }
+        if (Double.isNaN(upsideDownT)) {
+          upsideDownT = t;
+        }
+        return t - upsideDownT > interval;
+      }
+    };
+  }
+
+  /**
+   * Stops the episode when the velocity measured on {@code [transientT, finalT]} cannot exceed the value given by
+   * {@code threshold}, even assuming that the robot moves at {@code maxVelocity} for all the remaining time.
+   */
+  static StopCondition velocityUpperBound(double maxVelocity, double transientT, DoubleSupplier threshold) {
+    return finalT -> new Checker() {
+      private double initialX = Double.NaN;
+
+      @Override
+      public boolean shouldStop(double t, Robot robot) {
+        if (t < transientT) {
+          return false;
+        }
+        double x = robot.center().x();
+        if (Double.isNaN(initialX)) {
+          initialX = x;
+          return false;
+        }
+        double upperBound = (x - initialX + maxVelocity * (finalT - t)) / (finalT - transientT);
+        return upperBound < threshold.getAsDouble();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Serializable;
+
+/**
+ * Base class of the grids storing primitive values in flat arrays. Cells are indexed row by row, i.e., the cell
+ * (x,y) has index x+y*w, which is also the order in which {@link Grid} iterates its entries.
+ */
+public abstract class AbstractGrid implements Serializable {
+
+  protected final int w;
+  protected final int h;
+
+  protected AbstractGrid(int w, int h) {
+    this.w = w;
+    this.h = h;
+  }
+
+  public int getH() {
+    return h;
+  }
+
+  public int getW() {
+    return w;
+  }
+
+  public int index(int x, int y) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      throw new IllegalArgumentException(String.format("Cannot access element at %d,%d on a %dx%d grid", x, y, w, h));
+    }
+    return x + y * w;
+  }
+
+  public boolean isValid(int x, int y) {
+    return x >= 0 && x < w && y >= 0 && y < h;
+  }
+
+  public int size() {
+    return w * h;
+  }
+
+  public int x(int index) {
+    return index % w;
+  }
+
+  public int y(int index) {
+    return index / w;
+  }
+
+}
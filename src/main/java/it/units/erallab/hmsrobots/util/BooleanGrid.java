@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.util;
+
+import java.util.Arrays;
+
+/**
+ * A grid of booleans stored as a bitset, with one bit per cell.
+ */
+public class BooleanGrid extends AbstractGrid {
+
+  private final long[] words;
+
+  public BooleanGrid(int w, int h) {
+    super(w, h);
+    words = new long[(w * h + Long.SIZE - 1) / Long.SIZE];
+  }
+
+  public static BooleanGrid from(Grid<Boolean> grid) {
+    BooleanGrid booleanGrid = new BooleanGrid(grid.getW(), grid.getH());
+    for (int i = 0; i < booleanGrid.size(); i++) {
+      Boolean value = grid.get(booleanGrid.x(i), booleanGrid.y(i));
+      if (value != null && value) {
+        booleanGrid.set(i, true);
+      }
+    }
+    return booleanGrid;
+  }
+
+  //increments the count of each cell which is true
+  public void addTo(int[] counts) {
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      while (word != 0) {
+        int index = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        counts[index] = counts[index] + 1;
+        word = word & (word - 1);
+      }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(words, 0L);
+  }
+
+  public int count() {
+    int count = 0;
+    for (long word : words) {
+      count = count + Long.bitCount(word);
+    }
+    return count;
+  }
+
+  public boolean get(int index) {
+    return (words[index / Long.SIZE] & (1L << (index % Long.SIZE))) != 0;
+  }
+
+  public boolean get(int x, int y) {
+    return get(index(x, y));
+  }
+
+  public void set(int index, boolean value) {
+    if (value) {
+      words[index / Long.SIZE] = words[index / Long.SIZE] | (1L << (index % Long.SIZE));
+    } else {
+      words[index / Long.SIZE] = words[index / Long.SIZE] & ~(1L << (index % Long.SIZE));
+    }
+  }
+
+  public void set(int x, int y, boolean value) {
+    set(index(x, y), value);
+  }
+
+  //sets to true the cells with index in [fromIndex,toIndex], one word at a time
+  public void setRange(int fromIndex, int toIndex) {
+    int fromWord = fromIndex / Long.SIZE;
+    int toWord = toIndex / Long.SIZE;
+    long fromMask = -1L << (fromIndex % Long.SIZE);
+    long toMask = -1L >>> (Long.SIZE - 1 - toIndex % Long.SIZE);
+    if (fromWord == toWord) {
+      words[fromWord] = words[fromWord] | (fromMask & toMask);
+      return;
+    }
+    words[fromWord] = words[fromWord] | fromMask;
+    for (int w = fromWord + 1; w < toWord; w++) {
+      words[w] = -1L;
+    }
+    words[toWord] = words[toWord] | toMask;
+  }
+
+  //sets to true the cells in the [minX,maxX]x[minY,maxY] rectangle
+  public void setRectangle(int minX, int maxX, int minY, int maxY) {
+    if (minX > maxX) {
+      return;
+    }
+    for (int y = minY; y <= maxY; y++) {
+      setRange(index(minX, y), index(maxX, y));
+    }
+  }
+
+  public Grid<Boolean> toGrid() {
+    return Grid.create(w, h, (x, y) -> get(x + y * w));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BooleanGrid that = (BooleanGrid) o;
+    return w == that.w && h == that.h && Arrays.equals(words, that.words);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * w + h) + Arrays.hashCode(words);
+  }
+
+  @Override
+  public String toString() {
+    return Grid.toString(toGrid());
+  }
+}
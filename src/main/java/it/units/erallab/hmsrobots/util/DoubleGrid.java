@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.util;
+
+import java.util.Arrays;
+
+public class DoubleGrid extends AbstractGrid {
+
+  private final double[] values;
+
+  public DoubleGrid(int w, int h) {
+    super(w, h);
+    values = new double[w * h];
+  }
+
+  public static DoubleGrid from(Grid<? extends Number> grid) {
+    DoubleGrid doubleGrid = new DoubleGrid(grid.getW(), grid.getH());
+    for (int i = 0; i < doubleGrid.size(); i++) {
+      Number value = grid.get(doubleGrid.x(i), doubleGrid.y(i));
+      doubleGrid.values[i] = value == null ? 0d : value.doubleValue();
+    }
+    return doubleGrid;
+  }
+
+  public void copyFrom(DoubleGrid other) {
+    if (other.w != w || other.h != h) {
+      throw new IllegalArgumentException(String.format(
+          "Cannot copy a %dx%d grid on a %dx%d grid",
+          other.w, other.h, w, h
+      ));
+    }
+    System.arraycopy(other.values, 0, values, 0, values.length);
+  }
+
+  public void fill(double value) {
+    Arrays.fill(values, value);
+  }
+
+  public double get(int index) {
+    return values[index];
+  }
+
+  public double get(int x, int y) {
+    return values[index(x, y)];
+  }
+
+  public void set(int index, double value) {
+    values[index] = value;
+  }
+
+  public void set(int x, int y, double value) {
+    values[index(x, y)] = value;
+  }
+
+  public Grid<Double> toGrid() {
+    return Grid.create(w, h, (x, y) -> values[x + y * w]);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DoubleGrid that = (DoubleGrid) o;
+    return w == that.w && h == that.h && Arrays.equals(values, that.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * w + h) + Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return Grid.toString(toGrid(), "%5.2f ");
+  }
+}
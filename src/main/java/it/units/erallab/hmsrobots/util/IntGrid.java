@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2022 Giorgia Nadizar <giorgia.nadizar@gmail.com> (as Giorgia Nadizar)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.units.erallab.hmsrobots.util;
+
+import java.util.Arrays;
+
+public class IntGrid extends AbstractGrid {
+
+  private final int[] values;
+
+  public IntGrid(int w, int h) {
+    super(w, h);
+    values = new int[w * h];
+  }
+
+  public static IntGrid from(Grid<Integer> grid) {
+    IntGrid intGrid = new IntGrid(grid.getW(), grid.getH());
+    for (int i = 0; i < intGrid.size(); i++) {
+      Integer value = grid.get(intGrid.x(i), intGrid.y(i));
+      intGrid.values[i] = value == null ? 0 : value;
+    }
+    return intGrid;
+  }
+
+  public void fill(int value) {
+    Arrays.fill(values, value);
+  }
+
+  public int get(int index) {
+    return values[index];
+  }
+
+  public int get(int x, int y) {
+    return values[index(x, y)];
+  }
+
+  public void set(int index, int value) {
+    values[index] = value;
+  }
+
+  public void set(int x, int y, int value) {
+    values[index(x, y)] = value;
+  }
+
+  public int sum() {
+    int sum = 0;
+    for (int value : values) {
+      sum = sum + value;
+    }
+    return sum;
+  }
+
+  public Grid<Integer> toGrid() {
+    return Grid.create(w, h, (x, y) -> values[x + y * w]);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    IntGrid that = (IntGrid) o;
+    return w == that.w && h == that.h && Arrays.equals(values, that.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * w + h) + Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return Grid.toString(toGrid(), "%3d ");
+  }
+}
@@ -122,15 +122,14 @@ public class RobotUtils {
   }
 
   public static Function<Grid<Boolean>, Grid<Voxel>> buildSensorizingFunction(String name) {
-    String touch = "touch-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)";
-    String sight = "sight-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)";
-    String spineTouch = "spinedTouch-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)";
-    String spineTouchSighted = "spinedTouchSighted-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)";
-    String uniform = "uniform-(?<sensors>(" + String.join("|", PREDEFINED_SENSORS.keySet()) + ")(\\+(" + String.join(
-        "|",
-        PREDEFINED_SENSORS.keySet()
-    ) + "))*)-(?<noiseSigma>\\d+(\\.\\d+)?)";
-    String uniformAll = "uniformAll-(?<noiseSigma>\\d+(\\.\\d+)?)";
+    String samplingPeriod = "(@(?<samplingPeriod>\\d+(\\.\\d+)?))?";
+    String touch = "touch-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)" + samplingPeriod;
+    String sight = "sight-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)" + samplingPeriod;
+    String spineTouch = "spinedTouch-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)" + samplingPeriod;
+    String spineTouchSighted = "spinedTouchSighted-(?<cpg>[tf])-(?<malfunction>[tf])-(?<noiseSigma>\\d+(\\.\\d+)?)" + samplingPeriod;
+    String sensorName = "(" + String.join("|", PREDEFINED_SENSORS.keySet()) + ")(@\\d+(\\.\\d+)?)?";
+    String uniform = "uniform-(?<sensors>" + sensorName + "(\\+" + sensorName + ")*)-(?<noiseSigma>\\d+(\\.\\d+)?)";
+    String uniformAll = "uniformAll-(?<noiseSigma>\\d+(\\.\\d+)?)" + samplingPeriod;
     String empty = "empty";
     Map<String, String> params;
     if ((params = params(touch, name)) != null) {
@@ -144,7 +143,7 @@ public class RobotUtils {
             sensor("m", x, y, body, pars.get("malfunction").equals("t")),
             sensor("cpg", x, y, body, x == body.getW() - 1 && y == body.getH() - 1 && pars.get("cpg").equals("t")),
             sensor("t", x, y, body, y == 0)
-        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).toList());
+        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).map(s -> sampled(s, pars.get("samplingPeriod"))).toList());
       });
     }
     if ((params = params(sight, name)) != null) {
@@ -158,7 +157,7 @@ public class RobotUtils {
             sensor("m", x, y, body, pars.get("malfunction").equals("t")),
             sensor("cpg", x, y, body, x == body.getW() - 1 && y == body.getH() - 1 && pars.get("cpg").equals("t")),
             sensor("l5", x, y, body, x == body.getW() - 1)
-        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).toList());
+        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).map(s -> sampled(s, pars.get("samplingPeriod"))).toList());
       });
     }
     if ((params = params(spineTouch, name)) != null) {
@@ -174,7 +173,7 @@ public class RobotUtils {
             sensor("t", x, y, body, y == 0),
             sensor("vxy", x, y, body, y == body.getH() - 1),
             sensor("cpg", x, y, body, x == body.getW() - 1 && y == body.getH() - 1 && pars.get("cpg").equals("t"))
-        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).toList());
+        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).map(s -> sampled(s, pars.get("samplingPeriod"))).toList());
       });
     }
     if ((params = params(spineTouchSighted, name)) != null) {
@@ -191,7 +190,7 @@ public class RobotUtils {
             sensor("vxy", x, y, body, y == body.getH() - 1),
             sensor("cpg", x, y, body, x == body.getW() - 1 && y == body.getH() - 1 && pars.get("cpg").equals("t")),
             sensor("l5", x, y, body, x == body.getW() - 1)
-        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).toList());
+        ).stream().map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0)).map(s -> sampled(s, pars.get("samplingPeriod"))).toList());
       });
     }
     if ((params = params(uniform, name)) != null) {
@@ -201,8 +200,11 @@ public class RobotUtils {
           body.getW(),
           body.getH(),
           (x, y) -> !body.get(x, y) ? null : new Voxel(Arrays.stream(pars.get("sensors").split("\\+"))
-              .map(n -> sensor(n, x, y, body))
-              .map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0))
+              .map(n -> n.split("@"))
+              .map(n -> sampled(
+                  noiseSigma == 0 ? sensor(n[0], x, y, body) : new Noisy(sensor(n[0], x, y, body), noiseSigma, 0),
+                  n.length > 1 ? n[1] : null
+              ))
               .toList())
       );
     }
@@ -216,6 +218,7 @@ public class RobotUtils {
               .stream()
               .map(n -> sensor(n, x, y, body))
               .map(s -> noiseSigma == 0 ? s : new Noisy(s, noiseSigma, 0))
+              .map(s -> sampled(s, pars.get("samplingPeriod")))
               .toList())
       );
     }
@@ -310,4 +313,8 @@ public class RobotUtils {
     return sensor(name, x, y, body, true);
   }
 
+  private static Sensor sampled(Sensor sensor, String samplingPeriod) {
+    return samplingPeriod == null ? sensor : new Sampled(sensor, Double.parseDouble(samplingPeriod));
+  }
+
 }
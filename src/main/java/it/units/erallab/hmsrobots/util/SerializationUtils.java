@@ -9,6 +9,10 @@ import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -102,6 +106,19 @@ public class SerializationUtils {
     return (T) deserialize(serialize(t, mode), t.getClass(), mode);
   }
 
+  //64 bits of the SHA-256 of the JSON serialization, which is streamed into the digest rather than built as a string
+  public static long digest(Object object) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      try (OutputStream os = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+        OM.writeValue(os, object);
+      }
+      return ByteBuffer.wrap(digest.digest()).getLong();
+    } catch (NoSuchAlgorithmException | IOException e) {
+      throw new IllegalStateException(String.format("Cannot digest due to %s", e), e);
+    }
+  }
+
   private static byte[] decode(String string) {
     return Base64.getDecoder().decode(string);
   }
@@ -20,7 +20,9 @@ import com.google.common.collect.LinkedHashMultiset;
 import com.google.common.collect.Multiset;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -30,6 +32,10 @@ import java.util.stream.Collectors;
  */
 public class Utils {
 
+  private static final Pattern GROUP_NAME_PATTERN = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+  private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+  private static final Map<String, List<String>> GROUP_NAMES = new ConcurrentHashMap<>();
+
   private Utils() {
   }
 
@@ -131,8 +137,25 @@ public class Utils {
     return list;
   }
 
+  //the stream depends only on the seed and on the keys, so that it is the same regardless of when and where it is built
+  public static RandomGenerator derivedRandom(long seed, long... keys) {
+    long state = mix(seed);
+    for (long key : keys) {
+      state = mix(state ^ mix(key));
+    }
+    return new SplittableRandom(state);
+  }
+
+  //the finalizer of SplitMix64
+  private static long mix(long z) {
+    z = z + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
   public static String param(String pattern, String string, String paramName) {
-    Matcher matcher = Pattern.compile(pattern).matcher(string);
+    Matcher matcher = compiled(pattern).matcher(string);
     if (matcher.matches()) {
       return matcher.group(paramName);
     }
@@ -145,17 +168,13 @@ public class Utils {
   }
 
   public static Map<String, String> params(String pattern, String string) {
-    if (!string.matches(pattern)) {
+    Matcher matcher = compiled(pattern).matcher(string);
+    if (!matcher.matches()) {
       return null;
     }
-    Matcher m = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>").matcher(pattern);
-    List<String> groupNames = new ArrayList<>();
-    while (m.find()) {
-      groupNames.add(m.group(1));
-    }
     Map<String, String> params = new HashMap<>();
-    for (String groupName : groupNames) {
-      String value = param(pattern, string, groupName);
+    for (String groupName : GROUP_NAMES.computeIfAbsent(pattern, Utils::groupNames)) {
+      String value = matcher.group(groupName);
       if (value != null) {
         params.put(groupName, value);
       }
@@ -163,6 +182,20 @@ public class Utils {
     return params;
   }
 
+  //patterns are name templates written in the code, hence they are few and can be compiled once
+  private static Pattern compiled(String pattern) {
+    return PATTERNS.computeIfAbsent(pattern, Pattern::compile);
+  }
+
+  private static List<String> groupNames(String pattern) {
+    Matcher m = GROUP_NAME_PATTERN.matcher(pattern);
+    List<String> groupNames = new ArrayList<>();
+    while (m.find()) {
+      groupNames.add(m.group(1));
+    }
+    return List.copyOf(groupNames);
+  }
+
   private static <K> Grid<Integer> partitionGrid(Grid<K> kGrid, Predicate<K> p) {
     Grid<Integer> iGrid = Grid.create(kGrid);
     for (int x = 0; x < kGrid.getW(); x++) {